@@ -0,0 +1,30 @@
+package application;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the robot benchmarks with the GC profiler switched on, so that every result
+ * comes with its allocation rate (gc.alloc.rate.norm is bytes per operation).
+ * Any other JMH command line options are passed through, for example
+ * <pre>
+ * java application.BenchMain TickBench -p robots=10000 -p mix=basic
+ * </pre>
+ * The module needs the RobotGUI module and a project library named jmh holding
+ * jmh-core and jmh-generator-annprocess (with annotation processing enabled).
+ */
+public class BenchMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cmd);
+        if (cmd.getIncludes().isEmpty()) options.include("application\\..*Bench");
+        options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,91 @@
+package application;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the geometry used by sensors and collisions: the Line tests and Robot.hitting.
+ * Each operation picks the next of a fixed set of random lines and circles, so the branches
+ * are not all taken the same way.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBench {
+    private static final int COUNT = 1024;   // power of two, so the index can be masked
+
+    private Line[] lines;
+    private double[] cx, cy, r;
+    private Robot[] robots;
+    private RobotStore store;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(1);
+        lines = new Line[COUNT];
+        cx = new double[COUNT];
+        cy = new double[COUNT];
+        r = new double[COUNT];
+        robots = new Robot[COUNT];
+        store = new RobotStore(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            double x = random.nextDouble() * 400, y = random.nextDouble() * 400;
+            double a = random.nextDouble() * 2 * Math.PI;
+            lines[i] = new Line(x, y, x + RobotStore.SENSOR_LENGTH * Math.cos(a), y + RobotStore.SENSOR_LENGTH * Math.sin(a));
+            cx[i] = random.nextDouble() * 400;
+            cy[i] = random.nextDouble() * 400;
+            r[i] = 5 + random.nextDouble() * 20;
+            robots[i] = new BasicRobot(cx[i], cy[i], r[i], 0, 1);
+            store.add(i % 8 == 0 ? new KillerRobot(x, y, 12, 0, 1) : new BasicRobot(x, y, 10, 0, 1));
+        }
+    }
+
+    private int index() {
+        return next = (next + 1) & (COUNT - 1);
+    }
+
+    @Benchmark
+    public boolean lineIntersectsCircle() {
+        int i = index();
+        return lines[i].intersectsCircle(cx[i], cy[i], r[i]);
+    }
+
+    @Benchmark
+    public double lineDistanceFrom() {
+        int i = index();
+        return lines[i].distanceFrom(cx[i], cy[i]);
+    }
+
+    @Benchmark
+    public boolean lineFindIntersection() {
+        int i = index();
+        return lines[i].findintersection(lines[(i + 1) & (COUNT - 1)]);
+    }
+
+    @Benchmark
+    public boolean robotHitting() {
+        int i = index();
+        return robots[i].hitting(cx[(i + 1) & (COUNT - 1)], cy[(i + 1) & (COUNT - 1)], r[(i + 1) & (COUNT - 1)]);
+    }
+
+    @Benchmark
+    public boolean storeHitting() {
+        int i = index();
+        return store.hitting(i, cx[i], cy[i], r[i]);
+    }
+}
@@ -0,0 +1,91 @@
+package application;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the narrowphase fed by the broadphase: every robot looks for the robots overlapping
+ * a circle around it, once by querying candidates and testing one pair per Robot.hitting call
+ * as before the collision kernel, and once through the kernel on the grid's packed runs.
+ * reach is added to each robot's radius: 0 for bounce and kill checks, 41 for the line sensors.
+ * crowding packs the robots that many times more densely than TickBench's arenas.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NarrowPhaseBench {
+    @Param({"50000"})
+    public int robots;
+
+    @Param({"0", "41"})
+    public double reach;
+
+    @Param({"1", "16"})
+    public int crowding;
+
+    private RobotStore store;
+    private List<Robot> views;
+    private final BroadPhase broadPhase = new BroadPhase();
+    private final IndexList found = new IndexList();
+
+    @Setup
+    public void setUp() throws Exception {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        RobotArena arena;
+        try {
+            long side = Math.round(Math.sqrt(robots * 4000.0 / crowding));
+            arena = new HeadlessRunner(new String[] {
+                "--robots", Integer.toString(robots), "--obstacles", "0", "--mix", "basic",
+                "--killers", "0", "--size", side + "x" + side
+            }).buildArena();
+        } finally {
+            System.setOut(stdout);
+        }
+        store = arena.store();
+        views = arena.getAllRobots();
+        broadPhase.rebuild(store, arena.getXSize(), arena.getYSize());
+    }
+
+    @Benchmark
+    public int pairwise() {
+        int hits = 0;
+        for (int i = 0; i < store.size; i++) {
+            double x = store.x[i], y = store.y[i], r = store.rad[i] + reach;
+            found.clear();
+            broadPhase.query(x, y, r, found);
+            for (int k = 0; k < found.size(); k++) {
+                if (views.get(found.get(k)).hitting(x, y, r)) hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int kernel() {
+        int hits = 0;
+        for (int i = 0; i < store.size; i++) {
+            found.clear();
+            broadPhase.overlapping(store.x[i], store.y[i], store.rad[i] + reach, found);
+            hits += found.size();
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,73 @@
+package application;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of RobotArena.castRays: one full lidar sweep from the centre of every robot,
+ * including the ray grid rebuild that each batch does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RayCastBench {
+    @Param({"1000", "10000", "50000"})
+    public int robots;
+
+    @Param({"16", "64"})
+    public int rays;
+
+    @Param({"150"})
+    public double range;
+
+    private RobotArena arena;
+    private double[] x, y, angle;
+    private RayHits hits;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            arena = TickBench.scenario(robots, 200, "basic", 0);
+        } finally {
+            System.setOut(out);
+        }
+        int n = arena.getAllRobots().size() * rays;
+        x = new double[n];
+        y = new double[n];
+        angle = new double[n];
+        hits = new RayHits(n);
+        int k = 0;
+        for (Robot r : arena.getAllRobots()) {
+            for (int ray = 0; ray < rays; ray++, k++) {
+                x[k] = r.getX();
+                y[k] = r.getY();
+                angle[k] = r.getAngle() + 360.0 * ray / rays;
+            }
+        }
+    }
+
+    @Benchmark
+    public RayHits castRays() {
+        arena.castRays(x, y, angle, x.length, range, hits);
+        return hits;
+    }
+}
@@ -0,0 +1,80 @@
+package application;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of recording a frame into a DrawBuffer, the part of drawing that runs before
+ * JavaFX is involved. The batches it produces are what MyCanvas hands to JavaFX, one path each.
+ * view is what a 400 x 500 canvas shows: the whole arena, zoomed out until the robots are
+ * pixels or a density raster, or a window of it at one pixel per unit, in full detail.
+ * rasterise also draws the recorded frame into pixels with a PixelRenderer, in bands across
+ * every available processor, as the GUI's pixel renderer does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBench {
+    @Param({"5000", "50000"})
+    public int robots;
+
+    @Param({"whole", "window"})
+    public String view;
+
+    private final ArenaRenderer renderer = new ArenaRenderer();
+    private final DrawBuffer buffer = new DrawBuffer();
+    private final Frame frame = new Frame();
+    private final Camera camera = new Camera(400, 500);
+    private final PixelRenderer pixels = new PixelRenderer(Runtime.getRuntime().availableProcessors());
+
+    @Setup
+    public void setUp() throws Exception {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            RobotArena arena = TickBench.scenario(robots, 20, "mixed", robots / 100);
+            arena.adjustAllRobots();
+            frame.capture(arena, 1, 0, false);
+            if (view.equals("whole")) camera.fit(arena.getXSize(), arena.getYSize());
+            arena.shutdown();
+            pixels.resize(400, 500);
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    @Benchmark
+    public int record() {
+        renderer.draw(buffer, frame, 0, camera);
+        return buffer.batches();
+    }
+
+    @Benchmark
+    public int rasterise() {
+        renderer.draw(buffer, frame, 0, camera);
+        pixels.render(buffer);
+        return pixels.pixels()[0];
+    }
+
+    @TearDown
+    public void tearDown() {
+        pixels.shutdown();
+    }
+}
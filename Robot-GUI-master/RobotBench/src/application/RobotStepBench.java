@@ -0,0 +1,87 @@
+package application;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the per-robot steps that used to be BasicRobot.move and BasicRobot.adjustRobot:
+ * the move step, and the sense, bounce and obstacle steps run against a snapshot.
+ * Each operation covers every robot in the arena once, so divide by robots for a per-robot cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotStepBench {
+    @Param({"1000", "10000"})
+    public int robots;
+
+    @Param({"mixed", "basic"})
+    public String mix;
+
+    private final MovementSystem movement = new MovementSystem();
+    private final SensingSystem sensing = new SensingSystem();
+    private final IndexList nearby = new IndexList();
+    private RobotArena arena;
+    private RobotStore store;
+    private double[] x, y, angle;
+    private byte[] flags;
+    private PrintStream out;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        arena = TickBench.scenario(robots, 20, mix, 0);
+        store = arena.store();
+        arena.prepareQueries();
+        x = new double[store.capacity()];
+        y = new double[store.capacity()];
+        angle = new double[store.capacity()];
+        flags = new byte[store.capacity()];
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public double move() {
+        for (int i = 0; i < store.size; i++) {
+            movement.moveOne(store, i, arena.getXSize(), arena.getYSize());
+        }
+        return store.x[0];
+    }
+
+    @Benchmark
+    public double adjust() {
+        for (int i = 0; i < store.size; i++) {
+            x[i] = store.x[i];
+            y[i] = store.y[i];
+            angle[i] = store.angle[i];
+            RobotKind k = store.kindOf(i);
+            if (SensingSystem.senses(k))   sensing.senseOne(arena, store, i, angle, flags, nearby);
+            if (MovementSystem.bounces(k)) movement.bounceOne(arena, store, i, x, y, angle, nearby);
+            movement.avoidObstaclesOne(arena, store, i, x, y, angle);
+        }
+        return angle[0];
+    }
+}
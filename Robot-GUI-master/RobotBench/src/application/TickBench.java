@@ -0,0 +1,87 @@
+package application;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of a whole RobotArena.adjustAllRobots tick.
+ * The arena grows with the robot count so that the density stays that of 1000 robots
+ * in a 2000 x 2000 arena, and it is rebuilt every iteration so that kills do not pile up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBench {
+    private static final double AREA_PER_ROBOT = 2000.0 * 2000.0 / 1000;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int robots;
+
+    @Param({"0", "20", "200"})
+    public int obstacles;
+
+    @Param({"mixed", "basic", "advanced"})
+    public String mix;
+
+    @Param({"SERIAL", "PARALLEL"})
+    public RobotArena.TickMode mode;
+
+    private RobotArena arena;
+    private PrintStream out;
+
+    /**
+     * Builds a benchmark arena with HeadlessRunner's scenario generator.
+     *
+     * @param robots The number of robots, not counting killers.
+     * @param obstacles The number of obstacles.
+     * @param mix The robot mix, as for HeadlessRunner's --mix.
+     * @param killers The number of KillerRobots.
+     * @return The new arena.
+     * @throws Exception If the scenario cannot be built.
+     */
+    static RobotArena scenario(int robots, int obstacles, String mix, int killers) throws Exception {
+        long side = Math.round(Math.sqrt(robots * AREA_PER_ROBOT));
+        return new HeadlessRunner(new String[] {
+            "--robots", Integer.toString(robots), "--obstacles", Integer.toString(obstacles),
+            "--mix", mix, "--killers", Integer.toString(killers), "--size", side + "x" + side
+        }).buildArena();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));   // arena logs every kill
+        arena = scenario(robots, obstacles, mix, robots / 100);
+        arena.setTickMode(mode);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        arena.shutdown();
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public int adjustAllRobots() {
+        arena.adjustAllRobots();
+        return arena.getAllRobots().size();
+    }
+}
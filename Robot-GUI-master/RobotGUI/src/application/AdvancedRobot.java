@@ -3,6 +3,7 @@ package application;
 /**
  * Represents an advanced robot that inherits from BasicRobot.
  * This robot has enhanced movement capabilities and displays wheels based on its movement.
+ * Its movement is carried out by the arena's MovementSystem.
  */
 public class AdvancedRobot extends BasicRobot {
 
@@ -16,19 +17,40 @@ public class AdvancedRobot extends BasicRobot {
      * @param j Initial speed of the robot.
      */
     AdvancedRobot(double ix, double iy, double ir, int i, int j) {
-        super(ix, iy, ir, i, j);  // Call the constructor of BasicRobot
+        super(ix, iy, ir, i, j);  // Call the constructor of BasicRobot; its kind gives it its colour
+    }
 
-        // Change the color of the robot to indicate it's an advanced version
-        this.col = 'g';   
+    /**
+     * Constructs a view onto a AdvancedRobot already in a store; see Robot(RobotStore, int).
+     * 
+     * @param s The store holding the robot.
+     * @param i The robot's slot.
+     */
+    AdvancedRobot(RobotStore s, int i) {
+        super(s, i);
     }
 
     /**
      * Draws the robot on the canvas, including its main body and wheels.
      * 
-     * @param mc The MyCanvas object used to draw the robot.
+     * @param mc The canvas used to draw the robot.
      */
     @Override
-    public void drawRobot(MyCanvas mc) {
+    public void drawRobot(ArenaCanvas mc) {
+        drawAdvanced(mc, getX(), getY(), getRad(), getAngle(), kind().colour());
+    }
+
+    /**
+     * Draws the body and wheels of an AdvancedRobot. Also used by ArenaRenderer to draw from a Frame.
+     * 
+     * @param mc The canvas to draw on.
+     * @param x The x-coordinate of the robot.
+     * @param y The y-coordinate of the robot.
+     * @param rad The radius of the robot.
+     * @param bAngle The heading of the robot in degrees.
+     * @param col The colour of the body.
+     */
+    static void drawAdvanced(ArenaCanvas mc, double x, double y, double rad, double bAngle, char col) {
         // Draw the main body of the robot
         mc.showCircle(x, y, rad, col);
 
@@ -51,69 +73,9 @@ public class AdvancedRobot extends BasicRobot {
         mc.showCircle(rightWheelX, rightWheelY, wheelRadius, 'b'); // Right wheel
     }
 
-    /**
-     * Moves the robot based on the movement of its left and right wheels.
-     * If the robot detects an obstacle, it will turn to avoid it.
-     * 
-     * @param xLimit The maximum x-coordinate boundary.
-     * @param yLimit The maximum y-coordinate boundary.
-     */
-    @Override
-    public void move(double xLimit, double yLimit) {
-        // Move according to left and right wheel speeds
-        double leftRadAngle = Math.toRadians(bAngle + 90); // Left wheel angle
-        double rightRadAngle = Math.toRadians(bAngle - 90); // Right wheel angle
-
-        // Move in the direction of each wheel’s angle
-        double leftSpeedX = leftWheelSpeed * Math.cos(leftRadAngle);
-        double leftSpeedY = leftWheelSpeed * Math.sin(leftRadAngle);
-        double rightSpeedX = rightWheelSpeed * Math.cos(rightRadAngle);
-        double rightSpeedY = rightWheelSpeed * Math.sin(rightRadAngle);
-
-        // The robot's total speed is the average of both wheels' speeds
-        x += (leftSpeedX + rightSpeedX) / 2;
-        y += (leftSpeedY + rightSpeedY) / 2;
-
-        // Check if the robot hits the boundary or an obstacle
-        if (sensorSeesObstacle(xLimit, yLimit)) {
-            // Change direction based on collision (turn away from obstacle)
-            turningSpeed = 100 + (Math.random() * 80);  // Turn 100-180 degrees
-            bAngle += turningSpeed;
-        }
-
-        // Ensure the robot stays within the arena
-        clampPosition(xLimit, yLimit);
-    }
-
-    /**
-     * Helper method to check if the robot is about to bump into something (simple bump sensors).
-     * 
-     * @param xLimit The maximum x-coordinate boundary.
-     * @param yLimit The maximum y-coordinate boundary.
-     * @return true if the robot detects a collision, false otherwise.
-     */
-    public boolean sensorSeesObstacle(double xLimit, double yLimit) {
-        // Simple bump sensor: checks if the robot hits the arena boundaries
-        if (x - rad < 0 || x + rad > xLimit || y - rad < 0 || y + rad > yLimit) {
-            return true; // It hit a wall
-        }
-        return false;
-    }
-
-    /**
-     * Adjusts the robot's angle and position if there’s a collision with the boundary or another robot.
-     * 
-     * @param r The RobotArena object that contains all the robots and obstacles.
-     */
     @Override
-    protected void adjustRobot(RobotArena r) {
-        // Adjust angle and position if there’s a collision with boundary or robot
-        bAngle = r.CheckRobotAngle(x, y, rad, bAngle, robotID);
-
-        // Adjust position based on the new angle after the check
-        double radAngle = Math.toRadians(bAngle);
-        x += bSpeed * Math.cos(radAngle);
-        y += bSpeed * Math.sin(radAngle);
+    RobotKind kind() {
+        return RobotKind.ADVANCED;
     }
 
     /**
@@ -123,22 +85,6 @@ public class AdvancedRobot extends BasicRobot {
      */
     @Override
     protected String getStrType() {
-        return "AdvancedRobot"; 
-    }
-
-    /**
-     * Ensures that the robot stays within the boundaries of the arena.
-     * 
-     * @param xLimit The maximum x-coordinate boundary.
-     * @param yLimit The maximum y-coordinate boundary.
-     */
-    protected void clampPosition(double xLimit, double yLimit) {
-        if (x - rad < 0)       x = rad;
-        if (x + rad > xLimit)  x = xLimit - rad;
-        if (y - rad < 0)       y = rad;
-        if (y + rad > yLimit)  y = yLimit - rad;
+        return kind().strType(); 
     }
 }
-
-
-
@@ -0,0 +1,93 @@
+package application;
+
+/**
+ * The drawing operations robots, obstacles and the arena use to draw themselves.
+ * The simulation only depends on this interface, so it can run without JavaFX;
+ * MyCanvas implements it on top of a JavaFX GraphicsContext.
+ */
+public interface ArenaCanvas {
+    /** Number of shades showDensity can draw. */
+    int DENSITY_LEVELS = 8;
+
+    /**
+     * Clears the whole canvas.
+     */
+    void clearCanvas();
+
+    /**
+     * Draws a filled circle.
+     *
+     * @param x The x-coordinate of the centre.
+     * @param y The y-coordinate of the centre.
+     * @param rad The radius of the circle.
+     * @param col The colour character, for example 'r' for red.
+     */
+    void showCircle(double x, double y, double rad, char col);
+
+    /**
+     * Draws the body and wheels of a robot. By default they are drawn from circles, worked out
+     * afresh for each robot; a canvas may draw a cached image of the robot instead.
+     *
+     * @param x The x-coordinate of the robot.
+     * @param y The y-coordinate of the robot.
+     * @param rad The radius of the robot.
+     * @param angle The heading of the robot in degrees.
+     * @param kind The kind of robot, which decides its shape and colour.
+     */
+    default void showRobot(double x, double y, double rad, double angle, RobotKind kind) {
+        if (kind == RobotKind.ADVANCED) {
+            AdvancedRobot.drawAdvanced(this, x, y, rad, angle, kind.colour());
+        } else {
+            BasicRobot.drawBasic(this, x, y, rad, angle, kind.colour());
+        }
+    }
+
+    /**
+     * Draws a single pixel, for a robot too small on screen to draw as a circle.
+     *
+     * @param x The x-coordinate of the pixel.
+     * @param y The y-coordinate of the pixel.
+     * @param col The colour character.
+     */
+    void showPoint(double x, double y, char col);
+
+    /**
+     * Shades a rectangle to show how crowded that part of the arena is.
+     *
+     * @param x The x-coordinate of the top-left corner.
+     * @param y The y-coordinate of the top-left corner.
+     * @param w The width of the rectangle.
+     * @param h The height of the rectangle.
+     * @param level How crowded it is, from 1 to DENSITY_LEVELS.
+     */
+    void showDensity(double x, double y, double w, double h, int level);
+
+    /**
+     * Draws text centred on a point.
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @param s The text to draw.
+     */
+    void showText(double x, double y, String s);
+
+    /**
+     * Draws a line.
+     *
+     * @param x1 The x-coordinate of the start.
+     * @param y1 The y-coordinate of the start.
+     * @param x2 The x-coordinate of the end.
+     * @param y2 The y-coordinate of the end.
+     * @param col The colour character.
+     */
+    void showLine(double x1, double y1, double x2, double y2, char col);
+
+    /**
+     * Draws a border around the arena.
+     *
+     * @param width The width of the arena.
+     * @param height The height of the arena.
+     * @param thickness The thickness of the border lines.
+     */
+    void drawBorder(double width, double height, double thickness);
+}
@@ -0,0 +1,237 @@
+package application;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters of an arena's health, updated at the end of every tick and read by monitoring from
+ * any thread: through JMX once register is called, and in Prometheus text through a MetricsServer.
+ * <p>
+ * Totals are LongAdders, so they can be added to from any thread without contention; the tick's
+ * workers keep their own tallies while the stages run and add them once per tick. The other
+ * values describe the last tick and are written by the simulation thread alone. Rates are worked
+ * out when they are read, over the time since the previous reading if that was at least a second
+ * ago, so monitoring that reads often still sees steady numbers.
+ * <p>
+ * For correlating stalls with garbage collection, the JVM's collection count is read at the start
+ * and end of every tick, and ticks that overran their budget are counted separately when a
+ * collection ran during them.
+ */
+public class ArenaMetrics implements ArenaMetricsMXBean {
+    private static final long SAMPLE_NANOS = 1_000_000_000L;   // rates cover at least this long
+
+    final LongAdder ticks = new LongAdder();
+    final LongAdder kills = new LongAdder();
+    final LongAdder collisionPairs = new LongAdder();
+    final LongAdder sensorTests = new LongAdder();
+    final LongAdder tickNanos = new LongAdder();
+    final LongAdder overBudgetTicks = new LongAdder();
+    final LongAdder overBudgetTicksWithGc = new LongAdder();
+
+    private final AtomicIntegerArray robots = new AtomicIntegerArray(RobotKind.values().length);
+    private volatile int obstacles;
+    private volatile long lastTickNanos;
+    private volatile long lastCollisionPairs, lastSensorTests;
+    private final GarbageCollectorMXBean[] collectors;
+    private long gcCountAtStart;                // simulation thread only
+
+    // the last reading, for rates
+    private long sampledAt, sampledTicks, sampledKills, sampledTickNanos;
+    private double ticksPerSecond, killsPerSecond, averageBudgetUsage;
+
+    /**
+     * Constructs metrics with every counter at zero.
+     */
+    ArenaMetrics() {
+        List<GarbageCollectorMXBean> gcs = ManagementFactory.getGarbageCollectorMXBeans();
+        collectors = gcs.toArray(new GarbageCollectorMXBean[0]);
+        sampledAt = System.nanoTime();
+    }
+
+    /**
+     * Notes the start of a tick. Simulation thread only.
+     */
+    void startTick() {
+        gcCountAtStart = gcCount();
+    }
+
+    /**
+     * Records a finished tick. Simulation thread only.
+     *
+     * @param nanos How long the tick took.
+     * @param killed The robots killed in it.
+     * @param collisions The robot pairs tested for a collision in it.
+     * @param sensors The robots tested against a sensor line in it.
+     * @param store The arena's robots, as they are after the tick.
+     * @param obstacleCount The arena's obstacles.
+     */
+    void endTick(long nanos, long killed, long collisions, long sensors, RobotStore store, int obstacleCount) {
+        ticks.increment();
+        if (killed > 0) kills.add(killed);
+        collisionPairs.add(collisions);
+        sensorTests.add(sensors);
+        tickNanos.add(nanos);
+        lastTickNanos = nanos;
+        lastCollisionPairs = collisions;
+        lastSensorTests = sensors;
+        if (nanos > SimulationLoop.STEP_NANOS) {
+            overBudgetTicks.increment();
+            if (gcCount() != gcCountAtStart) overBudgetTicksWithGc.increment();
+        }
+        for (int k = 0; k < robots.length(); k++) robots.lazySet(k, store.count(RobotKind.of((byte) k)));
+        obstacles = obstacleCount;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server.
+     *
+     * @param name The name the arena is known by, such as "main".
+     * @return The name they were registered under.
+     * @throws JMException If they cannot be registered, for example because the name is taken.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("application:type=RobotArena,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public long getTicks() {
+        return ticks.sum();
+    }
+
+    @Override
+    public synchronized double getTicksPerSecond() {
+        sample();
+        return ticksPerSecond;
+    }
+
+    @Override
+    public long getKills() {
+        return kills.sum();
+    }
+
+    @Override
+    public synchronized double getKillsPerSecond() {
+        sample();
+        return killsPerSecond;
+    }
+
+    @Override
+    public Map<String, Integer> getRobotsByKind() {
+        Map<String, Integer> byKind = new LinkedHashMap<>();
+        for (int k = 0; k < robots.length(); k++) byKind.put(RobotKind.of((byte) k).strType(), robots.get(k));
+        return byKind;
+    }
+
+    /**
+     * Gets the number of robots of one kind at the end of the last tick.
+     *
+     * @param kind The kind of robot.
+     * @return The robot count.
+     */
+    int getRobots(RobotKind kind) {
+        return robots.get(kind.ordinal());
+    }
+
+    @Override
+    public int getRobots() {
+        int total = 0;
+        for (int k = 0; k < robots.length(); k++) total += robots.get(k);
+        return total;
+    }
+
+    @Override
+    public int getObstacles() {
+        return obstacles;
+    }
+
+    @Override
+    public long getCollisionPairsPerTick() {
+        return lastCollisionPairs;
+    }
+
+    @Override
+    public long getCollisionPairs() {
+        return collisionPairs.sum();
+    }
+
+    @Override
+    public long getSensorTestsPerTick() {
+        return lastSensorTests;
+    }
+
+    /**
+     * Gets the total time spent ticking.
+     *
+     * @return The tick time in nanoseconds.
+     */
+    long getTickNanos() {
+        return tickNanos.sum();
+    }
+
+    @Override
+    public double getTickBudgetUsage() {
+        return (double) lastTickNanos / SimulationLoop.STEP_NANOS;
+    }
+
+    @Override
+    public synchronized double getAverageTickBudgetUsage() {
+        sample();
+        return averageBudgetUsage;
+    }
+
+    @Override
+    public long getOverBudgetTicks() {
+        return overBudgetTicks.sum();
+    }
+
+    @Override
+    public long getOverBudgetTicksWithGc() {
+        return overBudgetTicksWithGc.sum();
+    }
+
+    @Override
+    public long getGcCount() {
+        return gcCount();
+    }
+
+    @Override
+    public long getGcTimeMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : collectors) total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+
+    /**
+     * Works out the rates again if the last reading was at least a second ago.
+     */
+    private void sample() {
+        long now = System.nanoTime();
+        long elapsed = now - sampledAt;
+        if (elapsed < SAMPLE_NANOS) return;
+        long t = ticks.sum(), k = kills.sum(), n = tickNanos.sum();
+        ticksPerSecond = (t - sampledTicks) * 1e9 / elapsed;
+        killsPerSecond = (k - sampledKills) * 1e9 / elapsed;
+        averageBudgetUsage = t == sampledTicks ? 0
+                : (double) (n - sampledTickNanos) / (t - sampledTicks) / SimulationLoop.STEP_NANOS;
+        sampledAt = now;
+        sampledTicks = t;
+        sampledKills = k;
+        sampledTickNanos = n;
+    }
+
+    private long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : collectors) total += Math.max(0, gc.getCollectionCount());
+        return total;
+    }
+}
@@ -0,0 +1,120 @@
+package application;
+
+import java.util.Map;
+
+/**
+ * The health of a running arena, as shown through JMX. See ArenaMetrics.
+ */
+public interface ArenaMetricsMXBean {
+    /**
+     * Gets the number of ticks run.
+     *
+     * @return The tick count.
+     */
+    long getTicks();
+
+    /**
+     * Gets the recent tick rate, over at least the last second.
+     *
+     * @return Ticks per second.
+     */
+    double getTicksPerSecond();
+
+    /**
+     * Gets the number of robots killed by KillerRobots.
+     *
+     * @return The kill count.
+     */
+    long getKills();
+
+    /**
+     * Gets the recent kill rate, over at least the last second.
+     *
+     * @return Kills per second.
+     */
+    double getKillsPerSecond();
+
+    /**
+     * Gets the number of robots of each kind at the end of the last tick.
+     *
+     * @return Robots by kind name.
+     */
+    Map<String, Integer> getRobotsByKind();
+
+    /**
+     * Gets the number of robots at the end of the last tick.
+     *
+     * @return The robot count.
+     */
+    int getRobots();
+
+    /**
+     * Gets the number of obstacles at the end of the last tick.
+     *
+     * @return The obstacle count.
+     */
+    int getObstacles();
+
+    /**
+     * Gets the number of robot pairs tested for a collision in the last tick.
+     *
+     * @return The collision pairs.
+     */
+    long getCollisionPairsPerTick();
+
+    /**
+     * Gets the number of robot pairs tested for a collision over all ticks.
+     *
+     * @return The collision pairs.
+     */
+    long getCollisionPairs();
+
+    /**
+     * Gets the number of robots tested against a sensor line in the last tick.
+     *
+     * @return The sensor tests.
+     */
+    long getSensorTestsPerTick();
+
+    /**
+     * Gets how much of its time budget, one step of SimulationLoop, the last tick used.
+     *
+     * @return The last tick's time over the budget; above 1 means it overran.
+     */
+    double getTickBudgetUsage();
+
+    /**
+     * Gets how much of the time budget ticks used on average recently, over at least the last second.
+     *
+     * @return The average tick time over the budget.
+     */
+    double getAverageTickBudgetUsage();
+
+    /**
+     * Gets the number of ticks that took longer than their budget.
+     *
+     * @return The overrun count.
+     */
+    long getOverBudgetTicks();
+
+    /**
+     * Gets the number of ticks that took longer than their budget and during which the garbage collector ran.
+     *
+     * @return The overrun count with a collection.
+     */
+    long getOverBudgetTicksWithGc();
+
+    /**
+     * Gets the number of garbage collections in the JVM.
+     *
+     * @return The collection count.
+     */
+    long getGcCount();
+
+    /**
+     * Gets the time spent in garbage collection in the JVM.
+     *
+     * @return The collection time in milliseconds.
+     */
+    long getGcTimeMillis();
+}
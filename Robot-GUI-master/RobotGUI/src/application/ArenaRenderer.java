@@ -0,0 +1,239 @@
+package application;
+
+/**
+ * Draws Frames published by the SimulationLoop, as seen through a Camera.
+ * Robots are drawn between their positions at the start and end of the last tick,
+ * according to how much of the next tick has already passed.
+ * The GUI draws into a DrawBuffer, which MyCanvas then draws in batches of one colour.
+ * <p>
+ * Only the cells of the frame's grid under the view are visited, and robots that are still
+ * off screen are skipped, so the cost follows what is visible rather than the size of the arena.
+ * The less room a robot gets on screen, the less of it is drawn; see Detail.
+ * <p>
+ * The border and obstacles only change when obstacles are added or removed, the arena is
+ * resized or the camera moves, so the GUI draws them on a layer of their own with drawStatic,
+ * only when staticChanged says so, and draws the robots alone each frame with drawDynamic.
+ */
+final class ArenaRenderer {
+    /** Smallest radius in pixels at which robots are drawn with their wheels and sensors. */
+    static final double FULL_DETAIL_RADIUS = 3;
+    /** Smallest radius in pixels at which robots are drawn as circles rather than single pixels. */
+    static final double BODY_RADIUS = 1;
+    /** Below this many pixels across a grid cell, only the number of robots in each cell is shown. */
+    static final double DENSITY_CELL_PIXELS = 2;
+
+    // what the static layer was last drawn from, for staticChanged
+    private int drawnObstacleVersion = -1, drawnCameraVersion = -1;
+    private double drawnXSize = -1, drawnYSize = -1;
+
+    /**
+     * How much of each robot is drawn.
+     */
+    enum Detail {
+        /** Body, wheels and sensor lines. */
+        FULL,
+        /** The body only. */
+        BODIES,
+        /** One pixel per robot. */
+        PIXELS,
+        /** A shade per grid cell, darker for more robots, instead of the robots themselves. */
+        DENSITY
+    }
+
+    /**
+     * Chooses how much to draw from the size of the largest robot on screen.
+     *
+     * @param f The frame to draw.
+     * @param camera The camera it is seen through.
+     * @return The level of detail.
+     */
+    static Detail detail(Frame f, Camera camera) {
+        if (f.cellSize * camera.zoom() < DENSITY_CELL_PIXELS) return Detail.DENSITY;
+        double r = f.maxRad * camera.zoom();
+        if (r < BODY_RADIUS) return Detail.PIXELS;
+        return r < FULL_DETAIL_RADIUS ? Detail.BODIES : Detail.FULL;
+    }
+
+    /**
+     * Checks whether a frame is still moving between ticks, so that drawing it again later
+     * would put the robots somewhere else.
+     *
+     * @param f The frame.
+     * @param now The current System.nanoTime().
+     * @return True if the robots are still between their last two positions.
+     */
+    static boolean interpolating(Frame f, long now) {
+        return f.running && now - f.time < SimulationLoop.STEP_NANOS;
+    }
+
+    /**
+     * Draws a frame, in the same order as RobotArena.drawArena.
+     *
+     * @param mc The canvas to draw on.
+     * @param f The frame to draw.
+     * @param now The current System.nanoTime().
+     * @param camera The camera the arena is seen through.
+     */
+    void draw(ArenaCanvas mc, Frame f, long now, Camera camera) {
+        mc.clearCanvas();
+        drawBorder(mc, f, camera);
+        drawContents(mc, f, now, camera);
+        drawObstacles(mc, f, camera);
+    }
+
+    /**
+     * Clears a canvas and draws the robots of a frame on it, without the border and obstacles.
+     *
+     * @param mc The canvas to draw on.
+     * @param f The frame to draw.
+     * @param now The current System.nanoTime().
+     * @param camera The camera the arena is seen through.
+     */
+    void drawDynamic(ArenaCanvas mc, Frame f, long now, Camera camera) {
+        mc.clearCanvas();
+        drawContents(mc, f, now, camera);
+    }
+
+    /**
+     * Checks whether the border and obstacles would look different from when drawStatic last drew them.
+     *
+     * @param f The frame to draw.
+     * @param camera The camera the arena is seen through.
+     * @return True if the static layer needs drawing again.
+     */
+    boolean staticChanged(Frame f, Camera camera) {
+        return f.obstacleVersion != drawnObstacleVersion || camera.version() != drawnCameraVersion
+                || f.xSize != drawnXSize || f.ySize != drawnYSize;
+    }
+
+    /**
+     * Clears a canvas and draws the border and obstacles of a frame on it, to go over the robots.
+     *
+     * @param mc The canvas to draw on.
+     * @param f The frame to draw.
+     * @param camera The camera the arena is seen through.
+     */
+    void drawStatic(ArenaCanvas mc, Frame f, Camera camera) {
+        mc.clearCanvas();
+        drawBorder(mc, f, camera);
+        drawObstacles(mc, f, camera);
+        drawnObstacleVersion = f.obstacleVersion;
+        drawnCameraVersion = camera.version();
+        drawnXSize = f.xSize;
+        drawnYSize = f.ySize;
+    }
+
+    /**
+     * Draws the robots, or their density, between their last two positions.
+     */
+    private void drawContents(ArenaCanvas mc, Frame f, long now, Camera camera) {
+        double alpha = 1;
+        if (f.running) {
+            alpha = (double) (now - f.time) / SimulationLoop.STEP_NANOS;
+            alpha = Math.max(0, Math.min(1, alpha));
+        }
+
+        Detail detail = detail(f, camera);
+        if (detail == Detail.DENSITY) {
+            drawDensity(mc, f, camera);
+        } else {
+            drawRobots(mc, f, camera, alpha, detail);
+        }
+    }
+
+    private void drawObstacles(ArenaCanvas mc, Frame f, Camera camera) {
+        for (Obstacle obs : f.obstacles) {
+            double r = obs.getRadius();
+            if (obs.getX() + r >= camera.left() && obs.getX() - r <= camera.right()
+                    && obs.getY() + r >= camera.top() && obs.getY() - r <= camera.bottom()) {
+                obs.drawObstacle(mc, camera);
+            }
+        }
+    }
+
+    private void drawBorder(ArenaCanvas mc, Frame f, Camera camera) {
+        double x0 = camera.toScreenX(0), y0 = camera.toScreenY(0);
+        double x1 = camera.toScreenX(f.xSize), y1 = camera.toScreenY(f.ySize);
+        mc.showLine(x0, y0, x1, y0, 'k');
+        mc.showLine(x1, y0, x1, y1, 'k');
+        mc.showLine(x1, y1, x0, y1, 'k');
+        mc.showLine(x0, y1, x0, y0, 'k');
+    }
+
+    private void drawRobots(ArenaCanvas mc, Frame f, Camera camera, double alpha, Detail detail) {
+        double zoom = camera.zoom();
+        // how far a drawn robot reaches from its centre: wheels stick out about 1.6 radii,
+        // and only full detail draws the sensor lines
+        double reachPerRad = 1.6;
+        double sensors = detail == Detail.FULL ? RobotStore.SENSOR_LENGTH : 0;
+        // robots are filed by their position at the end of the tick, so allow a cell for the move
+        double margin = f.maxRad * reachPerRad + sensors + f.cellSize;
+        int c0 = f.col(camera.left() - margin), c1 = f.col(camera.right() + margin);
+        int r0 = f.row(camera.top() - margin), r1 = f.row(camera.bottom() + margin);
+
+        for (int row = r0; row <= r1; row++) {
+            for (int c = row * f.cols + c0; c <= row * f.cols + c1; c++) {
+                for (int e = f.cellStart[c]; e < f.cellStart[c + 1]; e++) {
+                    int i = f.cellRobots[e];
+                    double x = f.prevX[i] + (f.x[i] - f.prevX[i]) * alpha;
+                    double y = f.prevY[i] + (f.y[i] - f.prevY[i]) * alpha;
+                    double reach = f.rad[i] * reachPerRad + sensors;
+                    if (x + reach < camera.left() || x - reach > camera.right()
+                            || y + reach < camera.top() || y - reach > camera.bottom()) continue;
+                    drawRobot(mc, f, i, x, y, camera, zoom, detail);
+                }
+            }
+        }
+    }
+
+    private void drawRobot(ArenaCanvas mc, Frame f, int i, double x, double y, Camera camera, double zoom,
+                           Detail detail) {
+        RobotKind k = RobotKind.of(f.kind[i]);
+        double sx = camera.toScreenX(x), sy = camera.toScreenY(y);
+        switch (detail) {
+            case PIXELS:
+                mc.showPoint(sx, sy, k.colour());
+                break;
+            case BODIES:
+                mc.showCircle(sx, sy, f.rad[i] * zoom, k.colour());
+                break;
+            default:
+                mc.showRobot(sx, sy, f.rad[i] * zoom, f.angle[i], k);
+                if (k != RobotKind.ADVANCED) {
+                    // the sensor lines move with the body
+                    double dx = x - f.x[i], dy = y - f.y[i];
+                    BasicRobot.drawSensors(mc, sx, sy,
+                                           camera.toScreenX(f.leftSensorX[i] + dx), camera.toScreenY(f.leftSensorY[i] + dy),
+                                           camera.toScreenX(f.rightSensorX[i] + dx), camera.toScreenY(f.rightSensorY[i] + dy),
+                                           f.flags[i]);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Shades every visible grid cell by its number of robots, relative to the most crowded visible cell.
+     */
+    private void drawDensity(ArenaCanvas mc, Frame f, Camera camera) {
+        int c0 = f.col(camera.left()), c1 = f.col(camera.right());
+        int r0 = f.row(camera.top()), r1 = f.row(camera.bottom());
+        int most = 0;
+        for (int row = r0; row <= r1; row++) {
+            for (int c = row * f.cols + c0; c <= row * f.cols + c1; c++) {
+                most = Math.max(most, f.cellStart[c + 1] - f.cellStart[c]);
+            }
+        }
+        if (most == 0) return;
+        double size = Math.max(1, f.cellSize * camera.zoom());
+        for (int row = r0; row <= r1; row++) {
+            for (int col = c0; col <= c1; col++) {
+                int c = row * f.cols + col;
+                int n = f.cellStart[c + 1] - f.cellStart[c];
+                if (n == 0) continue;
+                int level = (int) Math.ceil((double) n * ArenaCanvas.DENSITY_LEVELS / most);
+                mc.showDensity(camera.toScreenX(col * f.cellSize), camera.toScreenY(row * f.cellSize),
+                               size, size, level);
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * The binary snapshot format written by Save: the whole state of an arena, so that a loaded
+ * arena carries on exactly where the saved one stopped. Robots keep their kind, ID, heading,
+ * speed, wheel speeds, sensor flags, steering, lidar settings and random stream; only the last
+ * lidar scan is left out, as the next tick scans again.
+ * <p>
+ * The file is little-endian. A 64 byte header holds the magic, the format version and the arena,
+ * followed by the body: the obstacles and then the robots, each stored column by column as
+ * RobotStore holds them, so every column is written and read in one sweep. The header ends with
+ * a CRC32C of the body, and nothing in the arena is touched until the whole file has been checked.
+ * <p>
+ * A snapshot is written through a FileChannel to a file beside the target, which then replaces
+ * the target, so a failed save never leaves half a snapshot behind. It is read back through a
+ * memory-mapped buffer, so the columns come straight out of the page cache.
+ * <p>
+ * Writing can also be split in two: capture copies the arena's state between ticks, and the
+ * copy is then written on another thread while the arena carries on, as SnapshotWriter does.
+ */
+final class ArenaSnapshot {
+    /** Format version written by this class; files of later versions are refused. */
+    static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'R', 'O', 'B', 'O', 'S', 'N', 'A', 'P'};
+    private static final int HEADER = 64;
+    private static final int MAZE = 1;                   // header flag: the obstacles are a maze
+    private static final int OBSTACLE_BYTES = 3 * 8 + 1;
+    private static final int ROBOT_BYTES = 8 * 8 + 8 + 4 + 4;
+    private static final int CHUNK = 1 << 20;            // bytes written per channel write
+
+    private ArenaSnapshot() {
+    }
+
+    /**
+     * Checks whether a file starts like a snapshot, as opposed to a text file from older versions.
+     *
+     * @param file The file.
+     * @return True if the file begins with the snapshot magic.
+     * @throws IOException If the file cannot be read.
+     */
+    static boolean isSnapshot(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            while (magic.hasRemaining() && ch.read(magic) >= 0) {
+                // keep reading until the magic is in or the file ends
+            }
+            return !magic.hasRemaining() && Arrays.equals(magic.array(), MAGIC);
+        }
+    }
+
+    /**
+     * The state of an arena at one moment, copied out of it so that it can be written on another
+     * thread while the arena carries on. Only the columns that go into a snapshot are copied, and
+     * only as far as the robots in use, so taking a State costs one array copy per column.
+     */
+    static final class State {
+        final double width, height;
+        final long seed;
+        final boolean maze;
+        final int nextId;                   // Robot.robotCounter when the state was taken
+        final int robots, obstacles;
+        final double[] obstacleX, obstacleY, obstacleRadius;
+        final byte[] obstacleMaze;
+        final double[] x, y, rad, angle, speed, leftWheel, rightWheel, lidarRange;
+        final long[] random;
+        final int[] id;
+        final byte[] kind, flags, direction, lidarRays;
+
+        private State(RobotArena arena) {
+            RobotStore s = arena.store();
+            ArrayList<Obstacle> list = arena.getObstacles();
+            width = arena.getXSize();
+            height = arena.getYSize();
+            seed = arena.getSeed();
+            maze = arena.isMaze;
+            nextId = Robot.robotCounter;
+            robots = s.size;
+            obstacles = list.size();
+            obstacleX = new double[obstacles];
+            obstacleY = new double[obstacles];
+            obstacleRadius = new double[obstacles];
+            obstacleMaze = new byte[obstacles];
+            for (int j = 0; j < obstacles; j++) {
+                Obstacle o = list.get(j);
+                obstacleX[j] = o.getX();
+                obstacleY[j] = o.getY();
+                obstacleRadius[j] = o.getRadius();
+                obstacleMaze[j] = (byte) (o instanceof MazeObstacle ? 1 : 0);
+            }
+            int n = robots;
+            x = Arrays.copyOf(s.x, n);
+            y = Arrays.copyOf(s.y, n);
+            rad = Arrays.copyOf(s.rad, n);
+            angle = Arrays.copyOf(s.angle, n);
+            speed = Arrays.copyOf(s.speed, n);
+            leftWheel = Arrays.copyOf(s.leftWheel, n);
+            rightWheel = Arrays.copyOf(s.rightWheel, n);
+            lidarRange = Arrays.copyOf(s.lidarRange, n);
+            random = Arrays.copyOf(s.random, n);
+            id = Arrays.copyOf(s.id, n);
+            kind = Arrays.copyOf(s.kind, n);
+            flags = Arrays.copyOf(s.flags, n);
+            direction = Arrays.copyOf(s.direction, n);
+            lidarRays = Arrays.copyOf(s.lidarRays, n);
+        }
+    }
+
+    /**
+     * Copies the state of an arena, to be written later by write.
+     * Must be called on the thread that ticks the arena, between ticks.
+     *
+     * @param arena The arena.
+     * @return The arena's state as it is now.
+     */
+    static State capture(RobotArena arena) {
+        return new State(arena);
+    }
+
+    /**
+     * Writes a snapshot of an arena, replacing the file if it exists.
+     * Must be called on the thread that ticks the arena, between ticks.
+     *
+     * @param arena The arena.
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(RobotArena arena, Path file) throws IOException {
+        write(capture(arena), file);
+    }
+
+    /**
+     * Writes a snapshot of a captured state, replacing the file if it exists. May be called on
+     * any thread, as the state is not shared with the arena.
+     *
+     * @param state The state to write.
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(State state, Path file) throws IOException {
+        int n = state.robots, m = state.obstacles;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING)) {
+            Columns out = new Columns(ch);
+            out.doubles(state.obstacleX, m);
+            out.doubles(state.obstacleY, m);
+            out.doubles(state.obstacleRadius, m);
+            out.bytes(state.obstacleMaze, m);
+
+            out.doubles(state.x, n);
+            out.doubles(state.y, n);
+            out.doubles(state.rad, n);
+            out.doubles(state.angle, n);
+            out.doubles(state.speed, n);
+            out.doubles(state.leftWheel, n);
+            out.doubles(state.rightWheel, n);
+            out.doubles(state.lidarRange, n);
+            out.longs(state.random, n);
+            out.ints(state.id, n);
+            out.bytes(state.kind, n);
+            out.bytes(state.flags, n);
+            out.bytes(state.direction, n);
+            out.bytes(state.lidarRays, n);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(state.maze ? MAZE : 0);
+            header.putDouble(state.width);
+            header.putDouble(state.height);
+            header.putLong(state.seed);
+            header.putInt(n);
+            header.putInt(m);
+            header.putInt(state.nextId);
+            header.putInt(0);                   // reserved
+            header.putLong(out.crc.getValue());
+            header.flip();
+            while (header.hasRemaining()) ch.write(header, header.position());
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Replaces everything in an arena with a snapshot: its size, seed, obstacles and robots.
+     * Must be called on the thread that ticks the arena, between ticks. If the file is not a
+     * valid snapshot the arena is left as it was.
+     *
+     * @param arena The arena.
+     * @param file The snapshot to read.
+     * @throws IOException If the file cannot be read, is of a later version, or is damaged.
+     */
+    static void read(RobotArena arena, Path file) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = ch.size();
+            if (length < HEADER) throw new IOException(file + " is too short to be a snapshot");
+            if (length > Integer.MAX_VALUE) throw new IOException(file + " is too large to be a snapshot");
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, length);   // stays valid after the channel closes
+        }
+        map.order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] magic = new byte[MAGIC.length];
+        map.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException(file + " is not a snapshot");
+        int version = map.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException(file + " is a version " + version + " snapshot; this build reads up to " + VERSION);
+        }
+        int flags = map.getInt();
+        double width = map.getDouble();
+        double height = map.getDouble();
+        long seed = map.getLong();
+        int n = map.getInt();
+        int m = map.getInt();
+        int nextId = map.getInt();
+        map.getInt();                           // reserved
+        long checksum = map.getLong();
+        if (n < 0 || m < 0 || map.capacity() != HEADER + (long) m * OBSTACLE_BYTES + (long) n * ROBOT_BYTES) {
+            throw new IOException(file + " is truncated or damaged");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(map.position(HEADER));
+        if (crc.getValue() != checksum) throw new IOException(file + " is damaged: its checksum does not match");
+
+        // the columns, as offsets into the file
+        int ox = HEADER, oy = ox + 8 * m, orad = oy + 8 * m, maze = orad + 8 * m;
+        int x = maze + m, y = x + 8 * n, rad = y + 8 * n, angle = rad + 8 * n, speed = angle + 8 * n;
+        int left = speed + 8 * n, right = left + 8 * n, range = right + 8 * n, random = range + 8 * n;
+        int id = random + 8 * n, kind = id + 4 * n, sensors = kind + n, direction = sensors + n, rays = direction + n;
+        // the byte columns are checked in copies, which then go on into the store
+        byte[] kindColumn = new byte[n], raysColumn = new byte[n], directionColumn = new byte[n];
+        column(map, kind, n).get(kindColumn);
+        column(map, rays, n).get(raysColumn);
+        column(map, direction, n).get(directionColumn);
+        int kinds = RobotKind.values().length, directions = UserControlledRobot.Direction.values().length;
+        for (int i = 0; i < n; i++) {
+            int k = kindColumn[i], r = raysColumn[i], d = directionColumn[i];
+            if (k < 0 || k >= kinds || r < 0 || r > RobotStore.MAX_LIDAR_RAYS
+                    || d < RobotStore.NO_DIRECTION || d >= directions) {
+                throw new IOException(file + " is damaged: robot " + i + " is not valid");
+            }
+        }
+
+        arena.clear();
+        arena.setArenaSize(width, height);
+        arena.setSeed(seed);
+        arena.isMaze = (flags & MAZE) != 0;
+        for (int j = 0; j < m; j++) {
+            double cx = map.getDouble(ox + 8 * j), cy = map.getDouble(oy + 8 * j), cr = map.getDouble(orad + 8 * j);
+            arena.addObstacle(map.get(maze + j) != 0 ? new MazeObstacle(cx, cy, cr) : new Obstacle(cx, cy, cr));
+        }
+
+        // the columns go straight into the store's arrays; the store is empty, so robot i takes slot i
+        RobotStore s = arena.store();
+        arena.reserve(n);
+        column(map, x, n * 8).asDoubleBuffer().get(s.x, 0, n);
+        column(map, y, n * 8).asDoubleBuffer().get(s.y, 0, n);
+        column(map, rad, n * 8).asDoubleBuffer().get(s.rad, 0, n);
+        column(map, angle, n * 8).asDoubleBuffer().get(s.angle, 0, n);
+        column(map, speed, n * 8).asDoubleBuffer().get(s.speed, 0, n);
+        column(map, left, n * 8).asDoubleBuffer().get(s.leftWheel, 0, n);
+        column(map, right, n * 8).asDoubleBuffer().get(s.rightWheel, 0, n);
+        column(map, range, n * 8).asDoubleBuffer().get(s.lidarRange, 0, n);
+        column(map, random, n * 8).asLongBuffer().get(s.random, 0, n);
+        column(map, id, n * 4).asIntBuffer().get(s.id, 0, n);
+        System.arraycopy(kindColumn, 0, s.kind, 0, n);
+        column(map, sensors, n).get(s.flags, 0, n);
+        System.arraycopy(directionColumn, 0, s.direction, 0, n);
+        System.arraycopy(raysColumn, 0, s.lidarRays, 0, n);
+        arena.addStoredRobots(n);
+        Robot.robotCounter = Math.max(Robot.robotCounter, nextId);   // new robots must not reuse a loaded ID
+    }
+
+    /**
+     * Gets a column of a mapped snapshot as a little-endian buffer of its own.
+     */
+    private static ByteBuffer column(ByteBuffer map, int offset, int bytes) {
+        return map.slice(offset, bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes columns of numbers to a channel through one direct buffer, and keeps the CRC of
+     * everything written.
+     */
+    private static final class Columns {
+        final CRC32C crc = new CRC32C();
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+
+        Columns(FileChannel ch) throws IOException {
+            this.ch = ch;
+            ch.position(HEADER);                // the header is written last, once the CRC is known
+        }
+
+        void doubles(double[] a, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                if (buf.remaining() < 8) flush();
+                int count = Math.min(n - off, buf.remaining() / 8);
+                buf.asDoubleBuffer().put(a, off, count);
+                buf.position(buf.position() + 8 * count);
+                off += count;
+            }
+        }
+
+        void longs(long[] a, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                if (buf.remaining() < 8) flush();
+                int count = Math.min(n - off, buf.remaining() / 8);
+                buf.asLongBuffer().put(a, off, count);
+                buf.position(buf.position() + 8 * count);
+                off += count;
+            }
+        }
+
+        void ints(int[] a, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                if (buf.remaining() < 4) flush();
+                int count = Math.min(n - off, buf.remaining() / 4);
+                buf.asIntBuffer().put(a, off, count);
+                buf.position(buf.position() + 4 * count);
+                off += count;
+            }
+        }
+
+        void bytes(byte[] a, int n) throws IOException {
+            for (int off = 0; off < n; ) {
+                if (!buf.hasRemaining()) flush();
+                int count = Math.min(n - off, buf.remaining());
+                buf.put(a, off, count);
+                off += count;
+            }
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            crc.update(buf);
+            buf.rewind();
+            while (buf.hasRemaining()) ch.write(buf);
+            buf.clear();
+        }
+    }
+}
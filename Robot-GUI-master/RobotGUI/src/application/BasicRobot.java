@@ -3,20 +3,10 @@ package application;
 /**
  * Represents a Basic Robot that moves within the arena, has sensors to detect obstacles,
  * and can adjust its behavior based on sensor inputs.
+ * The movement and sensing themselves are carried out by the arena's MovementSystem and
+ * SensingSystem; this class is the view used by the GUI.
  */
 public class BasicRobot extends Robot {
-    // Wheel-based movement
-    protected double leftWheelSpeed;
-    protected double rightWheelSpeed;
-    protected double turningSpeed;
-
-    // Two line sensors
-    private Line leftSensorLine;
-    private Line rightSensorLine;
-
-    // Flags indicating whether each sensor is triggered
-    private boolean leftSensorTriggered = false;
-    private boolean rightSensorTriggered = false;
 
     /**
      * Constructs a BasicRobot with initial position, radius, angle, and speed.
@@ -31,26 +21,19 @@ public class BasicRobot extends Robot {
         super(ix, iy, ir);
 
         // Initial settings
-        this.bAngle = 0;    // e.g., face east
-        this.bSpeed = 1;
-        this.leftWheelSpeed  = 1;
-        this.rightWheelSpeed = 1;
-        this.turningSpeed    = 0;
-
-        // Create the sensors. For demonstration, 40 px length each
-        double sensorLength = 40;
-
-        // Left sensor angle
-        double leftSensorAngle  = Math.toRadians(bAngle - 30);
-        double leftX2  = x + sensorLength * Math.cos(leftSensorAngle);
-        double leftY2  = y + sensorLength * Math.sin(leftSensorAngle);
-        leftSensorLine  = new Line(x, y, leftX2, leftY2);
+        store.angle[slot] = 0;    // e.g., face east
+        store.speed[slot] = 1;
+        setWheels(1, 1);
+    }
 
-        // Right sensor angle
-        double rightSensorAngle = Math.toRadians(bAngle + 30);
-        double rightX2 = x + sensorLength * Math.cos(rightSensorAngle);
-        double rightY2 = y + sensorLength * Math.sin(rightSensorAngle);
-        rightSensorLine = new Line(x, y, rightX2, rightY2);
+    /**
+     * Constructs a view onto a BasicRobot already in a store; see Robot(RobotStore, int).
+     * 
+     * @param s The store holding the robot.
+     * @param i The robot's slot.
+     */
+    BasicRobot(RobotStore s, int i) {
+        super(s, i);
     }
 
     /**
@@ -61,23 +44,43 @@ public class BasicRobot extends Robot {
      * @return True if the mouse is within the robot's radius, false otherwise.
      */
     public boolean contains(double mouseX, double mouseY) {
-        double distance = Math.sqrt(Math.pow(this.x - mouseX, 2) + Math.pow(this.y - mouseY, 2));
-        return distance <= this.rad;  // If mouse is within the robot's radius
+        double distance = Math.sqrt(Math.pow(getX() - mouseX, 2) + Math.pow(getY() - mouseY, 2));
+        return distance <= getRad();  // If mouse is within the robot's radius
     }
 
     /**
      * Draws the robot on the canvas.
      * 
-     * @param mc The MyCanvas object to draw the robot.
+     * @param mc The canvas to draw the robot.
      */
     @Override
-    public void drawRobot(MyCanvas mc) {
+    public void drawRobot(ArenaCanvas mc) {
+        double x = getX(), y = getY();
+        drawBasic(mc, x, y, getRad(), getAngle(), kind().colour());
+
+        // 3. Draw the two sensor lines
+        if (!inArena()) return;    // sensors are only tracked inside an arena
+        drawSensors(mc, x, y, store.leftSensorX[slot], store.leftSensorY[slot],
+                    store.rightSensorX[slot], store.rightSensorY[slot], store.flags[slot]);
+    }
+
+    /**
+     * Draws the body and wheels of a BasicRobot. Also used by ArenaRenderer to draw from a Frame.
+     * 
+     * @param mc The canvas to draw on.
+     * @param x The x-coordinate of the robot.
+     * @param y The y-coordinate of the robot.
+     * @param rad The radius of the robot.
+     * @param bAngle The heading of the robot in degrees.
+     * @param col The colour of the body.
+     */
+    static void drawBasic(ArenaCanvas mc, double x, double y, double rad, double bAngle, char col) {
         // 1. Draw the main body
         mc.showCircle(x, y, rad, col);
 
         // Optional wheel controls
-        double wheelRadius = rad / 3;      
-        double wheelOffset = rad * 1.2;  
+        double wheelRadius = rad / 3;
+        double wheelOffset = rad * 1.2;
 
         double leftWheelAngleRad  = Math.toRadians(bAngle + 90);
         double rightWheelAngleRad = Math.toRadians(bAngle - 90);
@@ -89,173 +92,74 @@ public class BasicRobot extends Robot {
 
         mc.showCircle(leftWheelX,  leftWheelY,  wheelRadius, 'p');
         mc.showCircle(rightWheelX, rightWheelY, wheelRadius, 'p');
-
-        // 3. Draw the two sensor lines
-        //    If triggered, color them red; otherwise green
-        char leftColor  = leftSensorTriggered  ? 'r' : 'g';
-        char rightColor = rightSensorTriggered ? 'r' : 'g';
-
-        // We'll assume you have a getCoords() in Line:
-        double[] leftCoords  = leftSensorLine.getCoords();
-        double[] rightCoords = rightSensorLine.getCoords();
-
-        // Draw the lines
-        mc.showLine(leftCoords[0],  leftCoords[1],  leftCoords[2],  leftCoords[3],  leftColor);
-        mc.showLine(rightCoords[0], rightCoords[1], rightCoords[2], rightCoords[3], rightColor);
     }
 
     /**
-     * Moves the robot within the arena and checks for wall collisions.
-     * If a collision is detected, the robot will turn to avoid the obstacle.
+     * Draws the two sensor lines of a robot, red if triggered and green otherwise.
      * 
-     * @param xLimit The limit for the x-coordinate (arena width).
-     * @param yLimit The limit for the y-coordinate (arena height).
+     * @param mc The canvas to draw on.
+     * @param x The x-coordinate of the robot, where both lines start.
+     * @param y The y-coordinate of the robot.
+     * @param leftX The x-coordinate of the end of the left sensor.
+     * @param leftY The y-coordinate of the end of the left sensor.
+     * @param rightX The x-coordinate of the end of the right sensor.
+     * @param rightY The y-coordinate of the end of the right sensor.
+     * @param flags The robot's sensor flags.
      */
-    @Override
-    public void move(double xLimit, double yLimit) {
-        // turning
-        turningSpeed = (rightWheelSpeed - leftWheelSpeed) * 5;
-        bAngle += turningSpeed;
-
-        //Forward speed
-        bSpeed = (leftWheelSpeed + rightWheelSpeed) / 2;
-
-        //Move in direction bAngle
-        double radAngle = Math.toRadians(bAngle);
-        x += bSpeed * Math.cos(radAngle);
-        y += bSpeed * Math.sin(radAngle);
+    static void drawSensors(ArenaCanvas mc, double x, double y, double leftX, double leftY,
+                            double rightX, double rightY, byte flags) {
+        char leftColor  = (flags & RobotStore.LEFT_SENSOR) != 0  ? 'r' : 'g';
+        char rightColor = (flags & RobotStore.RIGHT_SENSOR) != 0 ? 'r' : 'g';
 
-        // 4. Update both sensor lines
-        updateSensorLines();
-
-        // Check if either sensor sees a wall
-        leftSensorTriggered  = sensorSeesWall(leftSensorLine,  xLimit, yLimit);
-        rightSensorTriggered = sensorSeesWall(rightSensorLine, xLimit, yLimit);
-
-        if (leftSensorTriggered || rightSensorTriggered) {
-            // Turn the robot decisively away from the wall
-            // For example, do a big random turn
-            bAngle += 100 + (Math.random() * 80); // turn 100..180 degrees
-        }
-
-        // 6. Keep the robot within the arena
-        clampPosition(xLimit, yLimit);
+        mc.showLine(x, y, leftX,  leftY,  leftColor);
+        mc.showLine(x, y, rightX, rightY, rightColor);
     }
 
     /**
-     * Adjusts the robot's behavior based on its interaction with other robots and obstacles.
+     * Checks whether the left sensor saw something on the last tick.
      * 
-     * @param r The RobotArena instance where the robot is located.
+     * @return True if the left sensor is triggered.
      */
-    @Override
-    protected void adjustRobot(RobotArena r) {
-        // Update lines again so they're fresh
-        updateSensorLines();
-
-        // By default, not triggered
-        leftSensorTriggered  = false;
-        rightSensorTriggered = false;
-
-        // 1. For each sensor, check if it sees another robot
-        for (Robot other : r.getAllRobots()) {
-            if (other.getID() != robotID) {
-                double distLeft  = leftSensorLine.distanceFrom(other.getX(), other.getY());
-                double distRight = rightSensorLine.distanceFrom(other.getX(), other.getY());
-
-                // If the sensor line is near the other robot’s center, treat as triggered
-                if (distLeft < other.getRad()) {
-                    leftSensorTriggered = true;
-                }
-                if (distRight < other.getRad()) {
-                    rightSensorTriggered = true;
-                }
-            }
-        }
-
-        // 2. For each sensor, check if it sees an obstacle
-        for (Obstacle obs : r.getObstacles()) {
-            // If your Line class has a intersectsCircle(cx, cy, r) method, call it:
-            if (leftSensorLine.intersectsCircle(obs.getX(), obs.getY(), obs.getRadius())) {
-                leftSensorTriggered = true;
-            }
-            if (rightSensorLine.intersectsCircle(obs.getX(), obs.getY(), obs.getRadius())) {
-                rightSensorTriggered = true;
-            }
-        }
-
-        // 3. If either sensor triggered (from robot or obstacle), turn away
-        if (leftSensorTriggered || rightSensorTriggered) {
-            bAngle += 100 + (Math.random() * 80); 
-        }
+    public boolean isLeftSensorTriggered() {
+        return (store.flags[slot] & RobotStore.LEFT_SENSOR) != 0;
     }
 
     /**
-     * Keeps the robot within the arena boundaries.
+     * Checks whether the right sensor saw something on the last tick.
      * 
-     * @param xLimit The limit for the x-coordinate (arena width).
-     * @param yLimit The limit for the y-coordinate (arena height).
+     * @return True if the right sensor is triggered.
      */
-    protected void clampPosition(double xLimit, double yLimit) {
-        if (x - rad < 0)       x = rad;
-        if (x + rad > xLimit)  x = xLimit - rad;
-        if (y - rad < 0)       y = rad;
-        if (y + rad > yLimit)  y = yLimit - rad;
+    public boolean isRightSensorTriggered() {
+        return (store.flags[slot] & RobotStore.RIGHT_SENSOR) != 0;
     }
 
-    /**
-     * Recalculates both sensor lines based on the robot's angle.
-     */
-    private void updateSensorLines() {
-        double sensorLength = 40;
-        // Left sensor at bAngle - 30
-        double leftAngleRad = Math.toRadians(bAngle - 30);
-        double lx2 = x + sensorLength * Math.cos(leftAngleRad);
-        double ly2 = y + sensorLength * Math.sin(leftAngleRad);
-        leftSensorLine = new Line(x, y, lx2, ly2);
-
-        // Right sensor at bAngle + 30
-        double rightAngleRad = Math.toRadians(bAngle + 30);
-        double rx2 = x + sensorLength * Math.cos(rightAngleRad);
-        double ry2 = y + sensorLength * Math.sin(rightAngleRad);
-        rightSensorLine = new Line(x, y, rx2, ry2);
-    }
+    // Optional wheel controls
+    public void turnLeft()  { setWheels(0.5, 1.5); }
+    public void turnRight() { setWheels(1.5, 0.5); }
+    public void goStraight(){ setWheels(1.0, 1.0); }
 
     /**
-     * Check if a given sensor line intersects with any arena boundary.
+     * Sets the speed of both wheels.
      * 
-     * @param sensor The sensor line to check.
-     * @param xLimit The limit for the x-coordinate (arena width).
-     * @param yLimit The limit for the y-coordinate (arena height).
-     * @return True if the sensor line intersects any wall, false otherwise.
+     * @param left The speed of the left wheel.
+     * @param right The speed of the right wheel.
      */
-    private boolean sensorSeesWall(Line sensor, double xLimit, double yLimit) {
-        Line topWall    = new Line(0,       0,       xLimit, 0);
-        Line bottomWall = new Line(0,       yLimit,  xLimit, yLimit);
-        Line leftWall   = new Line(0,       0,       0,      yLimit);
-        Line rightWall  = new Line(xLimit,  0,       xLimit, yLimit);
-
-        if (sensor.findintersection(topWall))    return true;
-        if (sensor.findintersection(bottomWall)) return true;
-        if (sensor.findintersection(leftWall))   return true;
-        if (sensor.findintersection(rightWall))  return true;
-
-        return false;
+    private void setWheels(double left, double right) {
+        store.leftWheel[slot]  = left;
+        store.rightWheel[slot] = right;
     }
 
-    // Optional wheel controls
-    public void turnLeft()  { leftWheelSpeed  = 0.5; rightWheelSpeed = 1.5; }
-    public void turnRight() { leftWheelSpeed  = 1.5; rightWheelSpeed = 0.5; }
-    public void goStraight(){ leftWheelSpeed  = 1.0; rightWheelSpeed = 1.0; }
+    @Override
+    RobotKind kind() {
+        return RobotKind.BASIC;
+    }
 
     /**
      * Returns the string representing the robot's type.
      * 
      * @return A string representing the robot type ("BasicRobot").
      */
-    protected String getStrType() { 
-        return "BasicRobot"; 
+    protected String getStrType() {
+        return kind().strType();
     }
 }
-
-
-
@@ -0,0 +1,111 @@
+package application;
+
+/**
+ * Broadphase for robot-robot queries.
+ * Rebuilt once per tick after the robots have moved, so that queries only
+ * look at robots in nearby cells instead of scanning the whole arena.
+ * A uniform grid sized from the largest robot radius is used by default; a loose quadtree is
+ * picked instead when the grid would be too large or the robots are very unevenly spread.
+ */
+final class BroadPhase {
+    private static final int MIN_CELLS = 1 << 18;     // grids this big (2 ints a cell, 2 MB) are always allowed
+    private static final int CELLS_PER_ROBOT = 16;    // otherwise the grid may have this many cells per robot
+    private static final int CROWD_FACTOR = 16;       // fullest cell vs average occupied cell
+    private static final int MIN_CROWD = 32;          // ignore crowding below this many robots in a cell
+
+    private final UniformGrid grid = new UniformGrid();
+    private final LooseQuadtree tree = new LooseQuadtree();
+    private SpatialIndex index;
+    private double maxRad;
+    private boolean valid;
+
+    /**
+     * Rebuilds the index over the robots, picking a grid or a quadtree.
+     *
+     * @param robots The store holding the robots.
+     * @param xSize The width of the arena.
+     * @param ySize The height of the arena.
+     */
+    void rebuild(RobotStore robots, double xSize, double ySize) {
+        SimulationEvents.BroadPhaseEvent event =
+                SimulationEvents.BROAD_PHASE.isEnabled() ? new SimulationEvents.BroadPhaseEvent() : null;
+        if (event != null) event.begin();
+        int n = robots.size;
+        maxRad = 0;
+        for (int i = 0; i < n; i++) {
+            if (robots.rad[i] > maxRad) maxRad = robots.rad[i];
+        }
+        double cellSize = Math.max(2 * maxRad, 1);
+
+        if (UniformGrid.cellsFor(xSize, ySize, cellSize) > Math.max(MIN_CELLS, (long) n * CELLS_PER_ROBOT)) {
+            index = tree;
+        } else {
+            grid.build(robots, xSize, ySize, cellSize);
+            index = grid;
+            int average = n / Math.max(1, grid.occupiedCells());
+            if (grid.maxOccupancy() > MIN_CROWD && grid.maxOccupancy() > CROWD_FACTOR * Math.max(1, average)) {
+                index = tree;
+            }
+        }
+        if (index == tree) {
+            tree.build(robots, xSize, ySize, cellSize);
+        }
+        valid = true;
+        if (event != null) {
+            event.robots = n;
+            event.index = index == tree ? "quadtree" : "grid";
+            event.cellSize = cellSize;
+            event.commit();
+        }
+    }
+
+    /**
+     * Marks the index as out of date, for example after robots were added or removed.
+     */
+    void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Checks whether the index matches the arena's robots.
+     *
+     * @return True if the index can be queried.
+     */
+    boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Collects every robot that could be touching a circle.
+     *
+     * @param x The x-coordinate of the circle.
+     * @param y The y-coordinate of the circle.
+     * @param rad The radius of the circle.
+     * @param out The list the candidate indices are appended to.
+     */
+    void query(double x, double y, double rad, IndexList out) {
+        index.query(x, y, rad + maxRad, out);
+    }
+
+    /**
+     * Collects every robot whose circle may overlap a circle, testing the candidates with the
+     * collision kernel; as for CollisionKernel.overlapping, callers finish with an exact test.
+     *
+     * @param x The x-coordinate of the circle.
+     * @param y The y-coordinate of the circle.
+     * @param rad The radius of the circle.
+     * @param out The list the slots of the robots found are appended to.
+     */
+    void overlapping(double x, double y, double rad, IndexList out) {
+        index.overlapping(x, y, rad, rad + maxRad, out);
+    }
+
+    /**
+     * Checks which kind of index was picked at the last rebuild.
+     *
+     * @return True if the loose quadtree is in use, false for the uniform grid.
+     */
+    boolean usingQuadtree() {
+        return index == tree;
+    }
+}
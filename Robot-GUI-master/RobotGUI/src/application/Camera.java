@@ -0,0 +1,164 @@
+package application;
+
+/**
+ * The part of the arena shown on the canvas: a point of the arena at the top-left corner of the
+ * canvas and a zoom in pixels per arena unit. Dragging pans the view and scrolling zooms it about
+ * the mouse. Nothing here touches JavaFX, so the renderer can be used without it.
+ */
+final class Camera {
+    /** Smallest zoom, in pixels per arena unit. */
+    static final double MIN_ZOOM = 1.0 / 256;
+    /** Largest zoom, in pixels per arena unit. */
+    static final double MAX_ZOOM = 16;
+
+    private double viewWidth, viewHeight;  // size of the canvas in pixels
+    private double left, top;              // arena point at the top-left corner of the canvas
+    private double zoom = 1;               // pixels per arena unit
+    private int version;                   // bumped whenever the view moves
+
+    /**
+     * Constructs a camera showing the arena from its top-left corner at one pixel per unit.
+     *
+     * @param viewWidth The width of the canvas in pixels.
+     * @param viewHeight The height of the canvas in pixels.
+     */
+    Camera(double viewWidth, double viewHeight) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+    }
+
+    /**
+     * Moves the view by a distance on screen, as when the arena is dragged by the mouse.
+     *
+     * @param dx The distance to move the arena right, in pixels.
+     * @param dy The distance to move the arena down, in pixels.
+     */
+    void pan(double dx, double dy) {
+        left -= dx / zoom;
+        top -= dy / zoom;
+        version++;
+    }
+
+    /**
+     * Zooms in or out, keeping the arena point under a point of the canvas where it is.
+     *
+     * @param factor How much to multiply the zoom by; more than 1 zooms in.
+     * @param sx The x-coordinate of the point on the canvas.
+     * @param sy The y-coordinate of the point on the canvas.
+     */
+    void zoomAt(double factor, double sx, double sy) {
+        double ax = toArenaX(sx), ay = toArenaY(sy);
+        zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        left = ax - sx / zoom;
+        top = ay - sy / zoom;
+        version++;
+    }
+
+    /**
+     * Zooms and pans so that the whole arena fits the canvas, centred.
+     *
+     * @param xSize The width of the arena.
+     * @param ySize The height of the arena.
+     */
+    void fit(double xSize, double ySize) {
+        zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, Math.min(viewWidth / xSize, viewHeight / ySize)));
+        left = xSize / 2 - viewWidth / 2 / zoom;
+        top = ySize / 2 - viewHeight / 2 / zoom;
+        version++;
+    }
+
+    /**
+     * Gets a number that changes whenever the view is panned or zoomed,
+     * so that whatever was drawn through the camera knows when it is out of date.
+     *
+     * @return The camera version.
+     */
+    int version() {
+        return version;
+    }
+
+    /**
+     * Gets the zoom.
+     *
+     * @return The zoom in pixels per arena unit.
+     */
+    double zoom() {
+        return zoom;
+    }
+
+    /**
+     * Gets the left edge of the view.
+     *
+     * @return The x-coordinate of the arena at the left edge of the canvas.
+     */
+    double left() {
+        return left;
+    }
+
+    /**
+     * Gets the top edge of the view.
+     *
+     * @return The y-coordinate of the arena at the top edge of the canvas.
+     */
+    double top() {
+        return top;
+    }
+
+    /**
+     * Gets the right edge of the view.
+     *
+     * @return The x-coordinate of the arena at the right edge of the canvas.
+     */
+    double right() {
+        return left + viewWidth / zoom;
+    }
+
+    /**
+     * Gets the bottom edge of the view.
+     *
+     * @return The y-coordinate of the arena at the bottom edge of the canvas.
+     */
+    double bottom() {
+        return top + viewHeight / zoom;
+    }
+
+    /**
+     * Converts an x-coordinate in the arena to one on the canvas.
+     *
+     * @param ax The x-coordinate in the arena.
+     * @return The x-coordinate on the canvas.
+     */
+    double toScreenX(double ax) {
+        return (ax - left) * zoom;
+    }
+
+    /**
+     * Converts a y-coordinate in the arena to one on the canvas.
+     *
+     * @param ay The y-coordinate in the arena.
+     * @return The y-coordinate on the canvas.
+     */
+    double toScreenY(double ay) {
+        return (ay - top) * zoom;
+    }
+
+    /**
+     * Converts an x-coordinate on the canvas to one in the arena.
+     *
+     * @param sx The x-coordinate on the canvas.
+     * @return The x-coordinate in the arena.
+     */
+    double toArenaX(double sx) {
+        return left + sx / zoom;
+    }
+
+    /**
+     * Converts a y-coordinate on the canvas to one in the arena.
+     *
+     * @param sy The y-coordinate on the canvas.
+     * @return The y-coordinate in the arena.
+     */
+    double toArenaY(double sy) {
+        return top + sy / zoom;
+    }
+}
@@ -0,0 +1,87 @@
+package application;
+
+/**
+ * Batched circle-overlap tests for the narrowphase.
+ * Instead of testing one pair per call, the kernel tests one circle against a whole run of
+ * candidates, so the loop runs over packed arrays without a virtual call per pair.
+ * The robot tests are conservative: every robot that overlaps by RobotStore.hitting, including
+ * its sqrt-based test for killers, is found, plus at most a few that only graze the circle by a
+ * rounding error, so callers finish with their own exact test on the (few) robots found.
+ * The kernel has no state, so it may be used by all threads at once.
+ */
+final class CollisionKernel {
+    // relative slack on the squared sum of radii; covers the rounding of the sqrt-based tests
+    static final double SLACK = 1 + 1e-9;
+
+    private CollisionKernel() {
+    }
+
+    /**
+     * Finds the robots in a run of packed arrays whose circles may overlap a circle.
+     *
+     * @param cx The x-coordinates of the robots.
+     * @param cy The y-coordinates of the robots.
+     * @param cr The radii of the robots.
+     * @param slot The store slots of the robots.
+     * @param from The first index to test.
+     * @param to The index after the last one to test.
+     * @param x The x-coordinate of the circle.
+     * @param y The y-coordinate of the circle.
+     * @param r The radius of the circle.
+     * @param out The list the slots found are appended to.
+     */
+    static void overlapping(double[] cx, double[] cy, double[] cr, int[] slot, int from, int to,
+                            double x, double y, double r, IndexList out) {
+        for (int k = from; k < to; k++) {
+            double dx = cx[k] - x, dy = cy[k] - y, sum = cr[k] + r;
+            if (dx * dx + dy * dy < sum * sum * SLACK) out.add(slot[k]);
+        }
+    }
+
+    /**
+     * Finds the robots in a list of slots whose circles may overlap a circle,
+     * gathering their positions from the store.
+     *
+     * @param s The store holding the robots.
+     * @param slots The slots of the candidate robots.
+     * @param from The index in slots of the first candidate.
+     * @param to The index after the last candidate.
+     * @param x The x-coordinate of the circle.
+     * @param y The y-coordinate of the circle.
+     * @param r The radius of the circle.
+     * @param out Receives the slots found from index from on, in their original order; may be slots itself.
+     * @return The index in out after the last slot found.
+     */
+    static int overlapping(RobotStore s, int[] slots, int from, int to, double x, double y, double r, int[] out) {
+        int kept = from;
+        for (int k = from; k < to; k++) {
+            int j = slots[k];
+            double dx = s.x[j] - x, dy = s.y[j] - y, sum = s.rad[j] + r;
+            if (dx * dx + dy * dy < sum * sum * SLACK) out[kept++] = j;
+        }
+        return kept;
+    }
+
+    /**
+     * Counts the circles in a run of packed arrays that collide with a circle,
+     * using exactly the test of Obstacle.isColliding.
+     *
+     * @param cx The x-coordinates of the circles.
+     * @param cy The y-coordinates of the circles.
+     * @param cr The radii of the circles.
+     * @param from The first index to test.
+     * @param to The index after the last one to test.
+     * @param x The x-coordinate of the circle.
+     * @param y The y-coordinate of the circle.
+     * @param r The radius of the circle.
+     * @return The number of circles it collides with.
+     */
+    static int countColliding(double[] cx, double[] cy, double[] cr, int from, int to, double x, double y, double r) {
+        int hits = 0;
+        for (int k = from; k < to; k++) {
+            double dx = x - cx[k], dy = y - cy[k], sum = r + cr[k];
+            if (dx * dx + dy * dy < sum * sum) hits++;
+        }
+        return hits;
+    }
+}
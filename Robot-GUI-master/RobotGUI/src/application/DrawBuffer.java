@@ -0,0 +1,217 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * An ArenaCanvas that records a frame's drawing instead of drawing it, so that MyCanvas can draw
+ * it in a few large batches: one filled path for all circles (or pixels, or density cells) of a
+ * colour and one stroked path for all lines of a colour, setting the colour and line width once per batch.
+ * <p>
+ * Robots drawn with showRobot are kept whole, one batch per kind, so that MyCanvas can draw each
+ * one as a single image from its SpriteAtlas.
+ * <p>
+ * Batches are drawn in the order their shape and colour were first used in the frame, so what was
+ * drawn first still ends up underneath: robots, then sensor lines, then obstacles.
+ * Within that, a shape is no longer drawn over one of another batch that came later.
+ * Batches and their arrays are kept from frame to frame, so recording a frame allocates nothing
+ * once the arrays have grown.
+ * Nothing here touches JavaFX.
+ */
+final class DrawBuffer implements ArenaCanvas {
+    /** Shape of a batch of filled circles, stored as x, y, radius. */
+    static final int CIRCLES = 0;
+    /** Shape of a batch of lines, stored as x1, y1, x2, y2. */
+    static final int LINES = 1;
+    /** Shape of a batch of single pixels, stored as x, y. */
+    static final int POINTS = 2;
+    /** Shape of a batch of shaded rectangles, stored as x, y, w, h; the colour is the density level. */
+    static final int DENSITY = 3;
+    /** Shape of a batch of robot bodies with their wheels, stored as x, y, rad, angle; the colour is the RobotKind ordinal. */
+    static final int ROBOTS = 4;
+    private static final int SHAPES = 5;
+
+    private static final int COLOURS = 128;   // colour characters are ASCII
+
+    /**
+     * The shapes of one kind and colour drawn in a frame.
+     */
+    static final class Batch {
+        int shape;
+        char colour;
+        double[] coords = new double[64];
+        int length;                            // number of coords in use
+
+        private void add(double a, double b) {
+            if (length + 2 > coords.length) coords = Arrays.copyOf(coords, coords.length * 2);
+            coords[length++] = a;
+            coords[length++] = b;
+        }
+
+        private void add(double a, double b, double c) {
+            if (length + 3 > coords.length) coords = Arrays.copyOf(coords, coords.length * 2);
+            coords[length++] = a;
+            coords[length++] = b;
+            coords[length++] = c;
+        }
+
+        private void add(double a, double b, double c, double d) {
+            if (length + 4 > coords.length) coords = Arrays.copyOf(coords, coords.length * 2);
+            coords[length++] = a;
+            coords[length++] = b;
+            coords[length++] = c;
+            coords[length++] = d;
+        }
+    }
+
+    private final ArrayList<Batch> batches = new ArrayList<>();  // in use are the first size, in drawing order
+    private int size;
+    private final int[] batchOf = new int[SHAPES * COLOURS];          // batch of each shape and colour, -1 if unused
+    private final ArrayList<String> texts = new ArrayList<>();
+    private double[] textXY = new double[8];                     // where each text is drawn, x then y
+    private double borderWidth, borderHeight, borderThickness;  // no border while borderThickness is 0
+
+    /**
+     * Constructs an empty buffer.
+     */
+    DrawBuffer() {
+        Arrays.fill(batchOf, -1);
+    }
+
+    /**
+     * Forgets everything recorded, ready for the next frame.
+     */
+    @Override
+    public void clearCanvas() {
+        for (int b = 0; b < size; b++) {
+            Batch batch = batches.get(b);
+            batchOf[batch.shape * COLOURS + batch.colour] = -1;
+            batch.length = 0;
+        }
+        size = 0;
+        texts.clear();
+        borderThickness = 0;
+    }
+
+    @Override
+    public void showCircle(double x, double y, double rad, char col) {
+        batch(CIRCLES, col).add(x, y, rad);
+    }
+
+    @Override
+    public void showRobot(double x, double y, double rad, double angle, RobotKind kind) {
+        batch(ROBOTS, (char) kind.ordinal()).add(x, y, rad, angle);
+    }
+
+    @Override
+    public void showPoint(double x, double y, char col) {
+        batch(POINTS, col).add(x, y);
+    }
+
+    @Override
+    public void showDensity(double x, double y, double w, double h, int level) {
+        batch(DENSITY, (char) level).add(x, y, w, h);
+    }
+
+    @Override
+    public void showText(double x, double y, String s) {
+        int t = texts.size();
+        if (2 * t + 2 > textXY.length) textXY = Arrays.copyOf(textXY, textXY.length * 2);
+        textXY[2 * t] = x;
+        textXY[2 * t + 1] = y;
+        texts.add(s);
+    }
+
+    @Override
+    public void showLine(double x1, double y1, double x2, double y2, char col) {
+        batch(LINES, col).add(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void drawBorder(double width, double height, double thickness) {
+        borderWidth = width;
+        borderHeight = height;
+        borderThickness = thickness;
+    }
+
+    /**
+     * Gets the number of batches recorded this frame.
+     *
+     * @return The number of batches.
+     */
+    int batches() {
+        return size;
+    }
+
+    /**
+     * Gets one of this frame's batches.
+     *
+     * @param b The batch's place in drawing order, from 0 to batches() - 1.
+     * @return The batch.
+     */
+    Batch batch(int b) {
+        return batches.get(b);
+    }
+
+    /**
+     * Gets the text drawn this frame, drawn after all batches.
+     *
+     * @return The texts, in the order they were drawn.
+     */
+    ArrayList<String> texts() {
+        return texts;
+    }
+
+    /**
+     * Gets where the texts drawn this frame are centred.
+     *
+     * @return The x and y of each text in turn; the entries past the texts are left over from earlier frames.
+     */
+    double[] textPositions() {
+        return textXY;
+    }
+
+    /**
+     * Gets the border drawn this frame.
+     *
+     * @return The thickness of the border, or 0 if there is none.
+     */
+    double borderThickness() {
+        return borderThickness;
+    }
+
+    /**
+     * Gets the width of the border drawn this frame.
+     *
+     * @return The width of the arena the border goes round.
+     */
+    double borderWidth() {
+        return borderWidth;
+    }
+
+    /**
+     * Gets the height of the border drawn this frame.
+     *
+     * @return The height of the arena the border goes round.
+     */
+    double borderHeight() {
+        return borderHeight;
+    }
+
+    /**
+     * Finds the batch for a shape and colour, starting a new one after the others if it is first used now.
+     */
+    private Batch batch(int shape, char col) {
+        int key = shape * COLOURS + (col & (COLOURS - 1));
+        int b = batchOf[key];
+        if (b < 0) {
+            b = size++;
+            if (b == batches.size()) batches.add(new Batch());
+            Batch batch = batches.get(b);
+            batch.shape = shape;
+            batch.colour = (char) (col & (COLOURS - 1));
+            batchOf[key] = b;
+        }
+        return batches.get(b);
+    }
+}
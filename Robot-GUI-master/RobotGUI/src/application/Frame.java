@@ -0,0 +1,165 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of an arena taken after a tick, for drawing on the FX thread while the
+ * simulation thread moves on. Each robot's position at the start of the tick is kept as well,
+ * so that the renderer can interpolate between the last two ticks.
+ * Frames are reused: the simulation thread fills one through capture, and it is not
+ * written again until the reader has moved on to a newer frame.
+ * <p>
+ * Capturing also sorts the robots into a grid of square cells, so that the renderer can visit
+ * just the robots near what is on screen. Robots outside the arena are kept in the nearest edge cell.
+ */
+final class Frame {
+    int count;                      // number of robots
+    int[] id = new int[0];
+    byte[] kind = new byte[0];      // RobotKind ordinal
+    byte[] flags = new byte[0];     // sensor flags
+    double[] x = new double[0], y = new double[0];
+    double[] prevX = new double[0], prevY = new double[0];
+    double[] rad = new double[0], angle = new double[0];
+    double[] leftSensorX = new double[0], leftSensorY = new double[0];
+    double[] rightSensorX = new double[0], rightSensorY = new double[0];
+    final int[] kindCount = new int[RobotKind.values().length];    // number of robots of each kind
+    double maxRad;                  // largest robot radius
+
+    // grid of the robots: those in cell c are cellRobots[cellStart[c]] until cellStart[c + 1]
+    private static final double MIN_CELL_SIZE = 32;
+    private static final int MAX_CELLS = 1 << 16;
+    double cellSize = MIN_CELL_SIZE;
+    int cols = 1, rows = 1;
+    int[] cellStart = new int[2];
+    int[] cellRobots = new int[0];
+    private int[] cellOf = new int[0];
+
+    Obstacle[] obstacles = new Obstacle[0];
+    int obstacleVersion = -1;       // RobotArena.getObstacleVersion() when obstacles was copied
+
+    double xSize, ySize;            // size of the arena
+    boolean profiled;               // true if the arena's TickProfiler is on, and profile holds its summary
+    final long[] profile = new long[TickProfiler.SUMMARY_LENGTH];
+    long tick;                      // number of ticks run so far
+    long time;                      // System.nanoTime() at which the tick was due
+    boolean running;                // false while the simulation is paused
+
+    /**
+     * Copies the state of an arena into this frame.
+     *
+     * @param arena The arena to copy; only to be called from the thread that owns it.
+     * @param tick The number of ticks run so far.
+     * @param time The System.nanoTime() at which the last tick was due.
+     * @param running Whether the simulation is running.
+     */
+    void capture(RobotArena arena, long tick, long time, boolean running) {
+        RobotStore s = arena.store();
+        int n = s.size;
+        if (id.length < n) grow(Math.max(n, id.length * 2));
+        count = n;
+        System.arraycopy(s.id, 0, id, 0, n);
+        System.arraycopy(s.kind, 0, kind, 0, n);
+        System.arraycopy(s.flags, 0, flags, 0, n);
+        System.arraycopy(s.x, 0, x, 0, n);
+        System.arraycopy(s.y, 0, y, 0, n);
+        System.arraycopy(s.prevX, 0, prevX, 0, n);
+        System.arraycopy(s.prevY, 0, prevY, 0, n);
+        System.arraycopy(s.rad, 0, rad, 0, n);
+        System.arraycopy(s.angle, 0, angle, 0, n);
+        System.arraycopy(s.leftSensorX, 0, leftSensorX, 0, n);
+        System.arraycopy(s.leftSensorY, 0, leftSensorY, 0, n);
+        System.arraycopy(s.rightSensorX, 0, rightSensorX, 0, n);
+        System.arraycopy(s.rightSensorY, 0, rightSensorY, 0, n);
+        for (int k = 0; k < kindCount.length; k++) kindCount[k] = s.count(RobotKind.of((byte) k));
+
+        // obstacles are immutable, so the array only needs copying when the list changes
+        if (obstacleVersion != arena.getObstacleVersion()) {
+            obstacles = arena.getObstacles().toArray(new Obstacle[0]);
+            obstacleVersion = arena.getObstacleVersion();
+        }
+
+        this.xSize = arena.getXSize();
+        this.ySize = arena.getYSize();
+        profiled = arena.profiler().enabled();
+        if (profiled) arena.profiler().summarise(profile);
+        index();
+        this.tick = tick;
+        this.time = time;
+        this.running = running;
+    }
+
+    /**
+     * Finds the cell holding a point, clamped to the grid.
+     *
+     * @param px The x-coordinate of the point.
+     * @param py The y-coordinate of the point.
+     * @return The cell's index, row by row.
+     */
+    int cellAt(double px, double py) {
+        return row(py) * cols + col(px);
+    }
+
+    /**
+     * Finds the grid column holding an x-coordinate, clamped to the grid.
+     *
+     * @param px The x-coordinate.
+     * @return The column.
+     */
+    int col(double px) {
+        return (int) Math.max(0, Math.min(cols - 1, Math.floor(px / cellSize)));
+    }
+
+    /**
+     * Finds the grid row holding a y-coordinate, clamped to the grid.
+     *
+     * @param py The y-coordinate.
+     * @return The row.
+     */
+    int row(double py) {
+        return (int) Math.max(0, Math.min(rows - 1, Math.floor(py / cellSize)));
+    }
+
+    /**
+     * Sorts the robots into the grid by the cell holding their centre, with a counting sort.
+     */
+    private void index() {
+        cellSize = Math.max(MIN_CELL_SIZE, Math.sqrt(xSize * ySize / MAX_CELLS));
+        cols = (int) Math.max(1, Math.ceil(xSize / cellSize));
+        rows = (int) Math.max(1, Math.ceil(ySize / cellSize));
+        int cells = cols * rows;
+        if (cellStart.length < cells + 1) cellStart = new int[cells + 1];
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+        maxRad = 0;
+        for (int i = 0; i < count; i++) {
+            int c = cellAt(x[i], y[i]);
+            cellOf[i] = c;
+            cellStart[c + 1]++;
+            maxRad = Math.max(maxRad, rad[i]);
+        }
+        for (int c = 0; c < cells; c++) cellStart[c + 1] += cellStart[c];
+        for (int i = 0; i < count; i++) {
+            cellRobots[cellStart[cellOf[i]]++] = i;
+        }
+        // the fill moved every start to the next cell's; shift them back
+        for (int c = cells; c > 0; c--) cellStart[c] = cellStart[c - 1];
+        cellStart[0] = 0;
+    }
+
+    private void grow(int capacity) {
+        id = Arrays.copyOf(id, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        rad = Arrays.copyOf(rad, capacity);
+        angle = Arrays.copyOf(angle, capacity);
+        leftSensorX = Arrays.copyOf(leftSensorX, capacity);
+        leftSensorY = Arrays.copyOf(leftSensorY, capacity);
+        rightSensorX = Arrays.copyOf(rightSensorX, capacity);
+        rightSensorY = Arrays.copyOf(rightSensorY, capacity);
+        cellRobots = new int[capacity];
+        cellOf = new int[capacity];
+    }
+}
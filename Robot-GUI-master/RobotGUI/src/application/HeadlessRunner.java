@@ -0,0 +1,327 @@
+package application;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.JMException;
+
+/**
+ * Runs an arena without a display, for batch jobs and build servers.
+ * The arena is either a generated scenario or a file written by Save (a snapshot, or text from
+ * older versions), and it is ticked as fast as possible on the calling thread (or across all
+ * cores with --parallel).
+ * Nothing here touches JavaFX or AWT.
+ * <p>
+ * With --check-alloc the ticks are run serially after a warm-up, and the run fails if they
+ * allocated anything on the heap. The warm-up runs until the compiler has settled, so that
+ * code being swapped in by the JIT, which allocates a little on the thread that next calls it,
+ * is not mistaken for the tick allocating. The check covers whatever the other options switch
+ * on for the calling thread, and is run over 5000 ticks against the default scenario, with
+ * --profile, with --jmx NAME --metrics-port 0, and with --lidar 32 --robots 500, in which the
+ * killers remove robots fitted with lidars; the metrics server's own threads are not measured.
+ * With --lidar N every robot is fitted with an N-ray lidar, which is scanned each tick.
+ * With --profile the ticks are timed phase by phase, and the report ends with each phase's
+ * p50, p99 and max time, also per kind of robot. With --check-alloc the warm-up ticks are
+ * timed too, so that the profiler is warmed up before allocation is measured.
+ * <p>
+ * For monitoring, --jmx NAME registers the arena's ArenaMetrics with the platform MBean server,
+ * and --metrics-port P serves them to Prometheus at http://localhost:P/metrics. With --ticks 0
+ * the arena runs until the process is stopped, and no report is printed.
+ * <p>
+ * With --checkpoint FILE the arena is saved to FILE every --checkpoint-every ticks (1000 by
+ * default) by a SnapshotWriter, while the ticks carry on; a checkpoint that falls due while the
+ * last one is still being written is skipped.
+ *
+ * <pre>
+ * java application.HeadlessRunner [--ticks N] [--robots N] [--killers N] [--obstacles N]
+ *                                 [--mix mixed|random|basic|advanced|teleporting|user]
+ *                                 [--size WxH] [--seed S] [--load FILE] [--save FILE]
+ *                                 [--lidar N] [--parallel] [--verbose] [--check-alloc] [--profile]
+ *                                 [--jmx NAME] [--metrics-port P]
+ *                                 [--checkpoint FILE] [--checkpoint-every N]
+ * </pre>
+ */
+public class HeadlessRunner {
+    private int ticks = 1000;
+    private int robots = 1000;
+    private int killers = 10;
+    private int obstacles = 20;
+    private int lidarRays;            // 0 for no lidars
+    private String mix = "mixed";     // kind of the non-killer robots: mixed for all four in turn, random for any of them
+    private double width = 2000, height = 2000;
+    private long seed = 1;
+    private String loadFile, saveFile;
+    private boolean parallel, verbose, checkAlloc, profile;
+    private String jmxName;           // null to leave the metrics unregistered
+    private int metricsPort = -1;     // -1 for no metrics server
+    private String checkpointFile;    // null for no checkpoints
+    private int checkpointEvery = 1000;
+    private SnapshotWriter checkpoints;
+    private final AtomicInteger checkpointsWritten = new AtomicInteger();
+    private final AtomicReference<Throwable> checkpointFailure = new AtomicReference<>();
+    private int checkpointsSkipped;
+    private static final int WARMUP_TICKS = 6000;    // before measuring allocation, so everything is compiled
+    private static final int QUIET_TICKS = 500;      // a warm-up batch that must allocate nothing
+    private static final int MAX_WARMUP_TICKS = 20000;
+    private static final double LIDAR_RANGE = 150;
+
+    /**
+     * Reads the command line options.
+     * 
+     * @param args The command line arguments.
+     */
+    HeadlessRunner(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--ticks":     ticks = Integer.parseInt(args[++i]); break;
+                case "--robots":    robots = Integer.parseInt(args[++i]); break;
+                case "--killers":   killers = Integer.parseInt(args[++i]); break;
+                case "--obstacles": obstacles = Integer.parseInt(args[++i]); break;
+                case "--mix":       mix = args[++i]; break;
+                case "--lidar":     lidarRays = Integer.parseInt(args[++i]); break;
+                case "--seed":      seed = Long.parseLong(args[++i]); break;
+                case "--load":      loadFile = args[++i]; break;
+                case "--save":      saveFile = args[++i]; break;
+                case "--parallel":  parallel = true; break;
+                case "--verbose":   verbose = true; break;
+                case "--check-alloc": checkAlloc = true; break;
+                case "--profile":   profile = true; break;
+                case "--jmx":       jmxName = args[++i]; break;
+                case "--metrics-port": metricsPort = Integer.parseInt(args[++i]); break;
+                case "--checkpoint": checkpointFile = args[++i]; break;
+                case "--checkpoint-every": checkpointEvery = Integer.parseInt(args[++i]); break;
+                case "--size": {
+                    String[] dims = args[++i].split("x");
+                    width = Double.parseDouble(dims[0]);
+                    height = Double.parseDouble(dims[1]);
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (checkAlloc && parallel) {
+            throw new IllegalArgumentException("--check-alloc measures the calling thread, so it cannot be used with --parallel");
+        }
+        if (checkAlloc && checkpointFile != null) {
+            throw new IllegalArgumentException("--checkpoint copies the arena on the calling thread, so it cannot be used with --check-alloc");
+        }
+        if (checkpointEvery <= 0) {
+            throw new IllegalArgumentException("--checkpoint-every must be at least 1");
+        }
+    }
+
+    /**
+     * Builds the arena: loaded from a file if one was given, otherwise a random scenario
+     * of robots of the chosen mix, some KillerRobots and some obstacles.
+     * 
+     * @return The arena to run.
+     * @throws IOException If the file cannot be read.
+     */
+    RobotArena buildArena() throws IOException {
+        RobotArena arena = new RobotArena(width, height);
+        arena.clear();
+        arena.setSeed(seed);
+        if (loadFile != null) {
+            new Save(arena).loadArena(loadFile);
+            fitLidars(arena);
+            return arena;
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < obstacles; i++) {
+            arena.addRandomObstacle(20);
+        }
+        for (int i = 0; i < robots; i++) {
+            double x = random.nextDouble() * width;
+            double y = random.nextDouble() * height;
+            double angle = random.nextDouble() * 360;
+            int kind;
+            switch (mix) {
+                case "mixed":       kind = i % 4; break;
+                case "random":      kind = random.nextInt(4); break;
+                case "basic":       kind = 0; break;
+                case "advanced":    kind = 1; break;
+                case "teleporting": kind = 2; break;
+                case "user":        kind = 3; break;
+                default: throw new IllegalArgumentException("Unknown robot mix: " + mix);
+            }
+            switch (kind) {
+                case 0:  arena.addRobott(new BasicRobot(x, y, 10, angle, 1)); break;
+                case 1:  arena.addRobott(new AdvancedRobot(x, y, 10, (int) angle, 1)); break;
+                case 2:  arena.addRobott(new TeleportingRobot(x, y, 10, angle, 1)); break;
+                default: {
+                    UserControlledRobot r = new UserControlledRobot(x, y, 10, (int) angle, 1);
+                    r.direction("WASD".substring(i / 4 % 4, i / 4 % 4 + 1));
+                    arena.addRobott(r);
+                }
+            }
+        }
+        for (int i = 0; i < killers; i++) {
+            arena.addRobott(new KillerRobot(random.nextDouble() * width, random.nextDouble() * height, 12, 0, 1));
+        }
+        fitLidars(arena);
+        return arena;
+    }
+
+    private void fitLidars(RobotArena arena) {
+        if (lidarRays == 0) return;
+        for (Robot r : arena.getAllRobots()) r.setLidar(lidarRays, LIDAR_RANGE);
+    }
+
+    /**
+     * Hands the arena's state to the checkpoint writer if a checkpoint is due after a tick,
+     * unless the last one is still being written.
+     *
+     * @param arena The arena, between ticks.
+     * @param tick The ticks run so far.
+     */
+    private void checkpointIfDue(RobotArena arena, long tick) {
+        if (checkpoints == null || tick % checkpointEvery != 0) return;
+        if (checkpoints.busy()) {
+            checkpointsSkipped++;
+            return;
+        }
+        checkpoints.save(arena, Path.of(checkpointFile)).whenComplete((result, failure) -> {
+            if (failure == null) checkpointsWritten.incrementAndGet();
+            else checkpointFailure.compareAndSet(null, failure.getCause() != null ? failure.getCause() : failure);
+        });
+    }
+
+    /**
+     * Ticks the arena until the compiler has settled: WARMUP_TICKS ticks, then batches of
+     * QUIET_TICKS until one allocates nothing, up to MAX_WARMUP_TICKS in all. HotSpot only hands
+     * a method without loops to its optimising compiler after about 5000 calls, so methods called
+     * once a tick need that many ticks, and on a machine with few cores the compiler can still be
+     * working through the queue after them. Methods called only when something rare happens, such
+     * as a kill, can still be compiled during a long measured run.
+     *
+     * @param arena The arena.
+     * @param threads Where to read the calling thread's allocation from.
+     * @return The warm-up ticks run.
+     */
+    private static int warmUp(RobotArena arena, com.sun.management.ThreadMXBean threads) {
+        int t = 0;
+        for (; t < WARMUP_TICKS; t++) {
+            arena.adjustAllRobots();
+        }
+        while (t < MAX_WARMUP_TICKS) {
+            long bytes0 = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < QUIET_TICKS; i++, t++) {
+                arena.adjustAllRobots();
+            }
+            if (threads.getCurrentThreadAllocatedBytes() == bytes0) break;
+        }
+        return t;
+    }
+
+    /**
+     * Runs the ticks and prints a report.
+     * 
+     * @return False if --check-alloc was given and the ticks allocated memory, or a checkpoint could not be written.
+     * @throws IOException If the arena cannot be loaded or saved, or the metrics port cannot be bound.
+     * @throws JMException If the metrics cannot be registered under the name given.
+     */
+    boolean run() throws IOException, JMException {
+        PrintStream out = System.out;
+        if (!verbose) System.setOut(new PrintStream(OutputStream.nullOutputStream()));   // arena logs every obstacle
+        MetricsServer server = null;
+        try {
+            RobotArena arena = buildArena();
+            arena.setTickMode(parallel ? RobotArena.TickMode.PARALLEL : RobotArena.TickMode.SERIAL);
+            arena.profiler().setEnabled(profile);
+            if (jmxName != null) {
+                out.println("jmx:          " + arena.metrics().register(jmxName));
+            }
+            if (metricsPort >= 0) {
+                server = new MetricsServer(arena.metrics(), metricsPort);
+                out.println("metrics:      http://localhost:" + server.port() + "/metrics");
+            }
+            if (checkpointFile != null) checkpoints = new SnapshotWriter();
+            if (ticks == 0) {
+                for (long t = 1; ; t++) {
+                    arena.adjustAllRobots();
+                    checkpointIfDue(arena, t);
+                }
+            }
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            int warmup = checkAlloc ? warmUp(arena, threads) : 0;
+            int start = arena.getAllRobots().size();
+            long killsBefore = arena.getKillCount();
+
+            long bytes0 = threads.getCurrentThreadAllocatedBytes();
+            long t0 = System.nanoTime();
+            for (int t = 0; t < ticks; t++) {
+                arena.adjustAllRobots();
+                checkpointIfDue(arena, t + 1);
+            }
+            long elapsed = System.nanoTime() - t0;
+            long allocated = threads.getCurrentThreadAllocatedBytes() - bytes0;
+            arena.shutdown();
+
+            out.println("ticks:        " + ticks + (parallel ? " (parallel)" : " (serial)")
+                        + (checkAlloc ? ", after " + warmup + " warm-up" : ""));
+            out.println("seconds:      " + elapsed / 1e9);
+            out.println("ticks/sec:    " + ticks / (elapsed / 1e9));
+            out.println("robots:       " + start + " -> " + arena.getAllRobots().size());
+            for (RobotKind k : RobotKind.values()) {
+                out.println("  " + k.strType() + ": " + arena.getRobotCount(k));
+            }
+            out.println("kills:        " + (arena.getKillCount() - killsBefore));
+            if (lidarRays > 0) {
+                long[] hits = new long[RayHits.Kind.values().length];
+                for (Robot r : arena.getAllRobots()) {
+                    for (int ray = 0; ray < r.getLidarRays(); ray++) hits[r.getLidarHit(ray).ordinal()]++;
+                }
+                out.print("lidar hits:  ");
+                for (RayHits.Kind k : RayHits.Kind.values()) out.print(" " + k + " " + hits[k.ordinal()]);
+                out.println();
+            }
+            out.println("allocated:    " + allocated + " bytes (" + (double) allocated / ticks + " per tick"
+                        + (parallel ? ", calling thread only)" : ")"));
+            if (profile) {
+                long[] summary = new long[TickProfiler.SUMMARY_LENGTH];
+                arena.profiler().summarise(summary);
+                List<String> lines = new ArrayList<>();
+                TickProfiler.report(summary, lines);
+                for (String line : lines) out.println(line);
+            }
+
+            if (saveFile != null) {
+                new Save(arena).saveArena(saveFile);
+                out.println("saved to:     " + saveFile);
+            }
+            if (checkpoints != null) {
+                checkpoints.shutdown(Long.MAX_VALUE);
+                out.println("checkpoints:  " + checkpointsWritten.get() + " written to " + checkpointFile
+                            + ", " + checkpointsSkipped + " skipped while writing");
+                Throwable failure = checkpointFailure.get();
+                if (failure != null) {
+                    out.println("FAILED: a checkpoint could not be written: " + failure);
+                    return false;
+                }
+            }
+            if (checkAlloc && allocated > 0) {
+                out.println("FAILED: the ticks allocated " + allocated + " bytes, expected none");
+                return false;
+            }
+            return true;
+        } finally {
+            if (server != null) server.stop();
+            if (checkpoints != null) checkpoints.shutdown(0);
+            System.setOut(out);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, JMException {
+        if (!new HeadlessRunner(args).run()) System.exit(1);
+    }
+}
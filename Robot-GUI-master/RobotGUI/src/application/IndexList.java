@@ -0,0 +1,130 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * A small growable list of primitive ints, used to pass robot indices around
+ * without boxing them into Integer objects.
+ */
+final class IndexList {
+    private int[] items;
+    private int size;
+
+    /**
+     * Constructs an empty list with a default capacity.
+     */
+    IndexList() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty list with the given initial capacity.
+     *
+     * @param capacity The initial number of slots.
+     */
+    IndexList(int capacity) {
+        items = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Sorts the values into ascending order, in place.
+     */
+    void sort() {
+        Arrays.sort(items, 0, size);
+    }
+
+    /**
+     * Appends a value to the end of the list.
+     *
+     * @param value The value to append.
+     */
+    void add(int value) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        items[size++] = value;
+    }
+
+    /**
+     * Grows the storage, if needed, so that the list can hold a given number of values
+     * without growing again.
+     *
+     * @param capacity The number of values.
+     */
+    void ensureCapacity(int capacity) {
+        if (items.length < capacity) {
+            items = Arrays.copyOf(items, capacity);
+        }
+    }
+
+    /**
+     * Gets the value at the given position.
+     *
+     * @param i The position in the list.
+     * @return The value stored there.
+     */
+    int get(int i) {
+        return items[i];
+    }
+
+    /**
+     * Overwrites the value at the given position.
+     *
+     * @param i The position in the list.
+     * @param value The new value.
+     */
+    void set(int i, int value) {
+        items[i] = value;
+    }
+
+    /**
+     * Removes the value at the given position by moving the last value into its place.
+     * The order of the list is not kept.
+     *
+     * @param i The position to remove.
+     * @return The value that now sits at position i, or -1 if i was the last position.
+     */
+    int swapRemove(int i) {
+        size--;
+        if (i == size) {
+            return -1;
+        }
+        items[i] = items[size];
+        return items[i];
+    }
+
+    /**
+     * Gets the number of values in the list.
+     *
+     * @return The size of the list.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Shortens the list, dropping the values from the given position on.
+     *
+     * @param newSize The new size, which must not exceed the current size.
+     */
+    void truncate(int newSize) {
+        size = newSize;
+    }
+
+    /**
+     * Gets the array the values are stored in, for kernels that work on it directly.
+     * Only the first size() entries are in use, and the array is replaced when the list grows.
+     *
+     * @return The backing array.
+     */
+    int[] array() {
+        return items;
+    }
+
+    /**
+     * Empties the list, keeping its storage for reuse.
+     */
+    void clear() {
+        size = 0;
+    }
+}
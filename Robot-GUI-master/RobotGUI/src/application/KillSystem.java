@@ -0,0 +1,28 @@
+package application;
+
+/**
+ * System that finds the robots killed by KillerRobots this tick.
+ * Victims are only collected here; the arena removes them once all systems have run,
+ * so no system ever sees the robot arrays change under it.
+ */
+final class KillSystem {
+
+    /**
+     * Collects the slots of every robot touched by one KillerRobot. Nothing in the store is written.
+     * A victim reached by several killers is listed once per killer.
+     *
+     * @param arena The arena the robots are in.
+     * @param s The store holding the robots.
+     * @param i The slot of the KillerRobot.
+     * @param victims The list the victims' slots are appended to.
+     * @param nearby A list the robot query can use.
+     */
+    void killOne(RobotArena arena, RobotStore s, int i, IndexList victims, IndexList nearby) {
+        nearby.clear();
+        arena.robotsOverlapping(s.x[i], s.y[i], s.rad[i], nearby);
+        for (int n = 0; n < nearby.size(); n++) {
+            int j = nearby.get(n);
+            if (s.id[j] != s.id[i] && s.hitting(i, s.x[j], s.y[j], s.rad[j])) victims.add(j);
+        }
+    }
+}
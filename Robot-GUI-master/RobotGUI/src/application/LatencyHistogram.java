@@ -0,0 +1,99 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Counts of durations in nanoseconds, in buckets that grow with the duration: every power of two
+ * is split into SUB_BUCKETS equal buckets, so a percentile read back is within about 6% of the
+ * true one, from a nanosecond up to hours. Recording is a few shifts and an increment into an
+ * array sized up front, so it allocates nothing. Not thread-safe: one thread records, and
+ * whoever reads must do so from the same thread.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 44;     // about 4.9 hours; longer durations go in the last bucket
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private long max;
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos The duration in nanoseconds; negative durations count as 0.
+     */
+    void record(long nanos) {
+        long v = Math.max(0, nanos);
+        counts[bucket(v)]++;
+        total++;
+        if (v > max) max = v;
+    }
+
+    /**
+     * Forgets every duration recorded.
+     */
+    void reset() {
+        Arrays.fill(counts, 0);
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * Gets the number of durations recorded.
+     *
+     * @return The count.
+     */
+    long count() {
+        return total;
+    }
+
+    /**
+     * Gets the longest duration recorded.
+     *
+     * @return The longest duration in nanoseconds, or 0 if none were recorded.
+     */
+    long max() {
+        return max;
+    }
+
+    /**
+     * Estimates the duration a given share of the recorded durations are no longer than.
+     *
+     * @param p The share, from 0 to 1; 0.5 gives the median and 0.99 the 99th percentile.
+     * @return The middle of the bucket holding that duration, never more than max(), or 0 if none were recorded.
+     */
+    long percentile(double p) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) return Math.min(max, (lowest(b) + lowest(b + 1) - 1) / 2);
+        }
+        return max;
+    }
+
+    /**
+     * Finds the bucket of a duration: below SUB_BUCKETS every duration has its own bucket, and
+     * above that the bucket is picked by the top SUB_BITS + 1 bits.
+     */
+    private static int bucket(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (v >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Finds the smallest duration that goes in a bucket.
+     */
+    private static long lowest(int b) {
+        if (b < SUB_BUCKETS) return b;
+        int exponent = b / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = b % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    }
+}
@@ -0,0 +1,45 @@
+package application;
+
+/**
+ * System that scans the lidars of robots that have one.
+ * Each ray is cast through the arena's ray grid and the result is written to the robot's
+ * entries in the store's lidar results; the scan does not steer the robot.
+ */
+final class LidarSystem {
+    // cosine and sine of the angle between neighbouring rays, for each number of rays
+    private static final double[] STEP_COS = new double[RobotStore.MAX_LIDAR_RAYS + 1];
+    private static final double[] STEP_SIN = new double[RobotStore.MAX_LIDAR_RAYS + 1];
+
+    static {
+        for (int n = 1; n <= RobotStore.MAX_LIDAR_RAYS; n++) {
+            STEP_COS[n] = Math.cos(2 * Math.PI / n);
+            STEP_SIN[n] = Math.sin(2 * Math.PI / n);
+        }
+    }
+
+    /**
+     * Scans the lidar of one robot, if it has one. Only the robot's own lidar entries are written,
+     * so several threads may scan different robots at once.
+     *
+     * @param arena The arena the robots are in, whose ray grid must be up to date.
+     * @param s The store holding the robots.
+     * @param i The slot of the robot.
+     */
+    void scanOne(RobotArena arena, RobotStore s, int i) {
+        int rays = s.lidarRays[i];
+        if (rays == 0) return;
+        double x = s.x[i], y = s.y[i], range = s.lidarRange[i];
+
+        // rotate the direction from one ray to the next rather than calling cos and sin for each
+        double heading = Math.toRadians(s.angle[i]);
+        double dx = Math.cos(heading), dy = Math.sin(heading);
+        double c = STEP_COS[rays], sn = STEP_SIN[rays];
+        int base = i * RobotStore.MAX_LIDAR_RAYS;
+        for (int r = 0; r < rays; r++) {
+            arena.castRay(x, y, dx, dy, range, s.lidar, base + r);
+            double ndx = dx * c - dy * sn;
+            dy = dx * sn + dy * c;
+            dx = ndx;
+        }
+    }
+}
@@ -24,11 +24,22 @@ public class Line  {
 	 */
 	public boolean intersectsCircle(double cx, double cy, double r) {
 	    // Extract endpoints (x1,y1),(x2,y2) from your coords array
-	    double x1 = coords[0];
-	    double y1 = coords[1];
-	    double x2 = coords[2];
-	    double y2 = coords[3];
+	    return intersectsCircle(coords[0], coords[1], coords[2], coords[3], cx, cy, r);
+	}
 
+	/**
+	 * Returns true if the segment from x1,y1 to x2,y2 intersects a circle
+	 * whose center is (cx, cy) and radius is r, without needing a Line object.
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @param cx
+	 * @param cy
+	 * @param r
+	 * @return result of test
+	 */
+	static boolean intersectsCircle(double x1, double y1, double x2, double y2, double cx, double cy, double r) {
 	    // Vector for this line segment
 	    double dx = x2 - x1;
 	    double dy = y2 - y1;
@@ -169,7 +180,7 @@ public class Line  {
 	 * @param v2
 	 * @return result of test
 	 */
-	private boolean isBetween(double v, double v1, double v2) {
+	private static boolean isBetween(double v, double v1, double v2) {
 		if (v1>v2)  return v>=v2 && v<=v1;
 		else		return v>=v1 && v<=v2;
 	}
@@ -262,4 +273,43 @@ public class Line  {
 		}
 		return sdist;
 	}
+	/**
+	 * Find the shortest distance of x,y from the segment x1,y1 to x2,y2,
+	 * exactly as distanceFrom does but without needing a Line object or recording the foot
+	 * of the perpendicular, so that it allocates nothing
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @param x
+	 * @param y
+	 * @return shortest distance
+	 */
+	static double distanceFrom (double x1, double y1, double x2, double y2, double x, double y) {
+		double px, py;						// where perpendicular to line meets x,y
+		if (x1 == x2) {						// vertical line
+			px = x1;
+			py = y;
+		}
+		else if (y1 == y2) {				// horizontal line
+			px = x;
+			py = y1;
+		}
+		else {
+			double gradient = (y2 - y1) / (x2 - x1);
+			double offset = y2 - gradient * x2;
+			double offset2 = y + x / gradient;		// offset of perpendicular
+			px = (double) Math.round((offset2 - offset)/(gradient + 1.0/gradient));
+			py = (double) Math.round((offset + offset2 * gradient*gradient)/(gradient*gradient + 1.0));
+		}
+		double sdist;
+		if (isBetween(px, x1, x2) && isBetween(py, y1, y2))
+			sdist = distance(x, y, px, py);
+		else {
+			sdist = distance(x, y, x1, y1);
+			double sdist2 = distance(x, y, x2, y2);
+			if (sdist2 < sdist) sdist = sdist2;
+		}
+		return sdist;
+	}
 }
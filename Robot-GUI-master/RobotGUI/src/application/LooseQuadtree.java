@@ -0,0 +1,113 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * A loose quadtree over the robots of an arena.
+ * Each node covers a square, and its loose bounds are twice that size, so a robot is stored
+ * in the deepest node whose square holds its centre and whose half-size is at least its radius.
+ * This copes with very uneven crowds and mixed robot sizes better than a uniform grid.
+ * Nodes are kept in flat arrays and reused between builds.
+ */
+final class LooseQuadtree implements SpatialIndex {
+    private static final int MAX_DEPTH = 10;
+
+    private int nodeCount;
+    private double[] cx = new double[64], cy = new double[64], half = new double[64];
+    private int[] firstChild = new int[64];       // index of the first of four children, -1 if a leaf
+    private IndexList[] items = new IndexList[64];
+    private RobotStore robots;                    // store indexed by the last build
+
+    @Override
+    public void build(RobotStore robots, double xSize, double ySize, double cellSize) {
+        this.robots = robots;
+        nodeCount = 0;
+        double h = Math.max(xSize, ySize) / 2;
+        newNode(xSize / 2, ySize / 2, h);
+
+        int n = robots.size;
+        for (int i = 0; i < n; i++) {
+            insert(i, robots.x[i], robots.y[i], robots.rad[i]);
+        }
+    }
+
+    @Override
+    public void query(double x, double y, double reach, IndexList out) {
+        query(0, x, y, reach, out);
+    }
+
+    /**
+     * Gathers the candidates' circles from the store, since the tree does not keep them packed.
+     */
+    @Override
+    public void overlapping(double x, double y, double r, double reach, IndexList out) {
+        int from = out.size();
+        query(0, x, y, reach, out);
+        int[] slots = out.array();
+        out.truncate(CollisionKernel.overlapping(robots, slots, from, out.size(), x, y, r, slots));
+    }
+
+    /**
+     * Collects the robots in a node and in every child whose loose bounds meet the search box.
+     * Recursion depth is bounded by MAX_DEPTH, and no shared state is touched,
+     * so several threads may query the tree at once.
+     */
+    private void query(int node, double x, double y, double reach, IndexList out) {
+        IndexList list = items[node];
+        for (int k = 0; k < list.size(); k++) {
+            out.add(list.get(k));
+        }
+        int child = firstChild[node];
+        if (child < 0) return;
+        for (int c = child; c < child + 4; c++) {
+            double loose = 2 * half[c];
+            if (x + reach >= cx[c] - loose && x - reach <= cx[c] + loose
+                    && y + reach >= cy[c] - loose && y - reach <= cy[c] + loose) {
+                query(c, x, y, reach, out);
+            }
+        }
+    }
+
+    /**
+     * Stores a robot in the deepest node that can hold it.
+     * Robots whose centre lies outside the root square stay in the root, which is always searched.
+     */
+    private void insert(int i, double x, double y, double rad) {
+        int node = 0;
+        boolean inside = Math.abs(x - cx[0]) <= half[0] && Math.abs(y - cy[0]) <= half[0];
+        for (int depth = 0; inside && depth < MAX_DEPTH && half[node] / 2 >= rad; depth++) {
+            if (firstChild[node] < 0) split(node);
+            int quadrant = (x >= cx[node] ? 1 : 0) + (y >= cy[node] ? 2 : 0);
+            node = firstChild[node] + quadrant;
+        }
+        items[node].add(i);
+    }
+
+    private void split(int node) {
+        double h = half[node] / 2;
+        int first = newNode(cx[node] - h, cy[node] - h, h);
+        newNode(cx[node] + h, cy[node] - h, h);
+        newNode(cx[node] - h, cy[node] + h, h);
+        newNode(cx[node] + h, cy[node] + h, h);
+        firstChild[node] = first;
+    }
+
+    private int newNode(double x, double y, double h) {
+        if (nodeCount == cx.length) {
+            int cap = nodeCount * 2;
+            cx = Arrays.copyOf(cx, cap);
+            cy = Arrays.copyOf(cy, cap);
+            half = Arrays.copyOf(half, cap);
+            firstChild = Arrays.copyOf(firstChild, cap);
+            items = Arrays.copyOf(items, cap);
+        }
+        int node = nodeCount++;
+        cx[node] = x;
+        cy[node] = y;
+        half[node] = h;
+        firstChild[node] = -1;
+        if (items[node] == null) items[node] = new IndexList(4);
+        items[node].clear();
+        return node;
+    }
+}
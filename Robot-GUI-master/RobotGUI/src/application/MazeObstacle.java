@@ -21,9 +21,9 @@ public class MazeObstacle extends Obstacle {
     /**
      * Draws the maze obstacle on the canvas.
      * 
-     * @param mc The MyCanvas instance used for drawing the obstacle.
+     * @param mc The canvas used for drawing the obstacle.
      */
-    public void draw(MyCanvas mc) {
+    public void draw(ArenaCanvas mc) {
         double rad = 0;  // No radius for the obstacle; using 0 to represent the obstacle
         mc.showCircle(getX(), getY(), rad, 'b'); 
     }
@@ -0,0 +1,119 @@
+package application;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves an arena's ArenaMetrics at /metrics in the Prometheus text format, on the loopback
+ * address only, so that a scraper on the same machine can watch a long-running arena.
+ * Requests are handled on the server's own thread, which only reads the metrics.
+ */
+final class MetricsServer {
+    private static final String PREFIX = "robotgui_";
+
+    private final ArenaMetrics metrics;
+    private final HttpServer server;
+
+    /**
+     * Starts serving metrics.
+     *
+     * @param metrics The metrics to serve.
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    MetricsServer(ArenaMetrics metrics, int port) throws IOException {
+        this.metrics = metrics;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+        server.start();
+    }
+
+    /**
+     * Gets the port being listened on.
+     *
+     * @return The port.
+     */
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops serving metrics, without waiting for requests in progress.
+     */
+    void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    /**
+     * Writes the current metrics in the Prometheus text format.
+     *
+     * @return The text of one scrape.
+     */
+    String scrape() {
+        StringBuilder sb = new StringBuilder(2048);
+        metric(sb, "ticks_total", "counter", "Ticks run.", metrics.getTicks());
+        metric(sb, "ticks_per_second", "gauge", "Recent tick rate.", metrics.getTicksPerSecond());
+        metric(sb, "kills_total", "counter", "Robots killed by KillerRobots.", metrics.getKills());
+        metric(sb, "kills_per_second", "gauge", "Recent kill rate.", metrics.getKillsPerSecond());
+        header(sb, "robots", "gauge", "Robots in the arena, by kind.");
+        for (RobotKind k : RobotKind.values()) {
+            sb.append(PREFIX).append("robots{kind=\"").append(k.strType()).append("\"} ")
+              .append(metrics.getRobots(k)).append('\n');
+        }
+        metric(sb, "obstacles", "gauge", "Obstacles in the arena.", metrics.getObstacles());
+        metric(sb, "collision_pairs_per_tick", "gauge", "Robot pairs tested for a collision in the last tick.",
+               metrics.getCollisionPairsPerTick());
+        metric(sb, "collision_pairs_total", "counter", "Robot pairs tested for a collision.",
+               metrics.getCollisionPairs());
+        metric(sb, "sensor_tests_per_tick", "gauge", "Robots tested against a sensor line in the last tick.",
+               metrics.getSensorTestsPerTick());
+        metric(sb, "tick_seconds_total", "counter", "Time spent ticking.", metrics.getTickNanos() / 1e9);
+        metric(sb, "tick_budget_usage", "gauge", "Last tick's time over the time of one simulation step.",
+               metrics.getTickBudgetUsage());
+        metric(sb, "tick_budget_usage_average", "gauge", "Recent average tick time over the time of one step.",
+               metrics.getAverageTickBudgetUsage());
+        metric(sb, "over_budget_ticks_total", "counter", "Ticks that took longer than one step.",
+               metrics.getOverBudgetTicks());
+        metric(sb, "over_budget_ticks_with_gc_total", "counter",
+               "Ticks that took longer than one step while the garbage collector ran.",
+               metrics.getOverBudgetTicksWithGc());
+        metric(sb, "gc_collections_total", "counter", "Garbage collections in the JVM.", metrics.getGcCount());
+        metric(sb, "gc_seconds_total", "counter", "Time spent in garbage collection in the JVM.",
+               metrics.getGcTimeMillis() / 1e3);
+        return sb.toString();
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void metric(StringBuilder sb, String name, String type, String help, long value) {
+        header(sb, name, type, help);
+        sb.append(PREFIX).append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void metric(StringBuilder sb, String name, String type, String help, double value) {
+        header(sb, name, type, help);
+        sb.append(PREFIX).append(name).append(' ').append(String.format(Locale.ROOT, "%.6g", value)).append('\n');
+    }
+}
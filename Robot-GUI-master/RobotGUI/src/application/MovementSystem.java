@@ -0,0 +1,220 @@
+package application;
+
+/**
+ * System that moves robots: the per-kind step at the start of a tick, the bounce off
+ * walls and other robots for AdvancedRobot and KillerRobot, and the turn away from obstacles.
+ * Each step handles one robot of a RobotStore; ParallelTick runs them over every slot,
+ * one kind of robot at a time.
+ */
+final class MovementSystem {
+
+    /**
+     * Moves a run of robots of one kind a step each. The kind is only looked at once, so each kind
+     * gets a loop of its own around its step. Only the robots' own slots are written.
+     *
+     * @param s The store holding the robots.
+     * @param k The kind of every robot in the run.
+     * @param slots The slots of the robots.
+     * @param from The position in slots of the first robot.
+     * @param to The position after the last robot.
+     * @param xLimit The width of the arena.
+     * @param yLimit The height of the arena.
+     */
+    void moveAll(RobotStore s, RobotKind k, int[] slots, int from, int to, double xLimit, double yLimit) {
+        switch (k) {
+            case BASIC:
+            case KILLER:
+                for (int n = from; n < to; n++) moveOnWheels(s, slots[n], xLimit, yLimit);
+                break;
+            case ADVANCED:
+                for (int n = from; n < to; n++) moveSideways(s, slots[n], xLimit, yLimit);
+                break;
+            case TELEPORTING:
+                for (int n = from; n < to; n++) moveForward(s, slots[n], xLimit, yLimit);
+                break;
+            case USER_CONTROLLED:
+                for (int n = from; n < to; n++) moveInDirection(s, slots[n], xLimit, yLimit);
+                break;
+        }
+    }
+
+    /**
+     * Moves one robot a step according to its kind. Only the robot's own slot is written.
+     * This looks up the kind for every robot; the tick uses moveAll instead.
+     *
+     * @param s The store holding the robots.
+     * @param i The slot of the robot.
+     * @param xLimit The width of the arena.
+     * @param yLimit The height of the arena.
+     */
+    void moveOne(RobotStore s, int i, double xLimit, double yLimit) {
+        switch (s.kindOf(i)) {
+            case BASIC:
+            case KILLER:
+                moveOnWheels(s, i, xLimit, yLimit);
+                break;
+            case ADVANCED:
+                moveSideways(s, i, xLimit, yLimit);
+                break;
+            case TELEPORTING:
+                moveForward(s, i, xLimit, yLimit);
+                break;
+            case USER_CONTROLLED:
+                moveInDirection(s, i, xLimit, yLimit);
+                break;
+        }
+    }
+
+    /**
+     * Checks whether robots of a kind bounce off walls and other robots after moving.
+     *
+     * @param k The kind of robot.
+     * @return True for AdvancedRobot and KillerRobot.
+     */
+    static boolean bounces(RobotKind k) {
+        return k == RobotKind.ADVANCED || k == RobotKind.KILLER;
+    }
+
+    /**
+     * Bounces one robot off the walls and other robots, reading positions from the store and
+     * writing the robot's new position and heading to the given arrays.
+     *
+     * @param arena The arena the robots are in.
+     * @param s The store holding the robots.
+     * @param i The slot of the robot.
+     * @param xOut Array receiving the new x-coordinate at index i.
+     * @param yOut Array receiving the new y-coordinate at index i.
+     * @param angleOut Array receiving the new heading at index i.
+     * @param scratch A list the robot query can use.
+     */
+    void bounceOne(RobotArena arena, RobotStore s, int i, double[] xOut, double[] yOut, double[] angleOut,
+                   IndexList scratch) {
+        // Adjust angle and position if there’s a collision with boundary or robot
+        double a = arena.checkRobotAngle(s.x[i], s.y[i], s.rad[i], s.angle[i], s.id[i], scratch);
+        double radAngle = Math.toRadians(a);
+        angleOut[i] = a;
+        xOut[i] = s.x[i] + s.speed[i] * Math.cos(radAngle);
+        yOut[i] = s.y[i] + s.speed[i] * Math.sin(radAngle);
+    }
+
+    /**
+     * Turns one robot away from the obstacles it has run into, 120 degrees per obstacle.
+     *
+     * @param arena The arena the robots are in.
+     * @param s The store holding the robots.
+     * @param i The slot of the robot.
+     * @param x Array holding the robot's x-coordinate at index i.
+     * @param y Array holding the robot's y-coordinate at index i.
+     * @param angle Array holding the robot's heading at index i, which is updated.
+     */
+    void avoidObstaclesOne(RobotArena arena, RobotStore s, int i, double[] x, double[] y, double[] angle) {
+        int hits = arena.countObstacleCollisions(x[i], y[i], s.rad[i]);
+        for (int k = 0; k < hits; k++) {
+            angle[i] += 120;
+        }
+    }
+
+    /**
+     * Steers by the difference in wheel speeds and turns away from walls seen by the sensors.
+     */
+    private void moveOnWheels(RobotStore s, int i, double xLimit, double yLimit) {
+        // turning
+        s.angle[i] += (s.rightWheel[i] - s.leftWheel[i]) * 5;
+
+        // Forward speed
+        s.speed[i] = (s.leftWheel[i] + s.rightWheel[i]) / 2;
+
+        // Move in direction angle
+        double radAngle = Math.toRadians(s.angle[i]);
+        s.x[i] += s.speed[i] * Math.cos(radAngle);
+        s.y[i] += s.speed[i] * Math.sin(radAngle);
+
+        // Check if either sensor sees a wall
+        s.updateSensorLines(i);
+        byte flags = 0;
+        if (sensorSeesWall(s.x[i], s.y[i], s.leftSensorX[i], s.leftSensorY[i], xLimit, yLimit)) {
+            flags |= RobotStore.LEFT_SENSOR;
+        }
+        if (sensorSeesWall(s.x[i], s.y[i], s.rightSensorX[i], s.rightSensorY[i], xLimit, yLimit)) {
+            flags |= RobotStore.RIGHT_SENSOR;
+        }
+        s.flags[i] = flags;
+        if (flags != 0) {
+            // Turn the robot decisively away from the wall
+            s.angle[i] += 100 + (s.nextDouble(i) * 80); // turn 100..180 degrees
+        }
+
+        s.clampPosition(i, xLimit, yLimit);
+    }
+
+    /**
+     * Moves by the average of the two wheel vectors, which point either side of the heading.
+     */
+    private void moveSideways(RobotStore s, int i, double xLimit, double yLimit) {
+        double leftRadAngle  = Math.toRadians(s.angle[i] + 90);
+        double rightRadAngle = Math.toRadians(s.angle[i] - 90);
+
+        double leftSpeedX  = s.leftWheel[i]  * Math.cos(leftRadAngle);
+        double leftSpeedY  = s.leftWheel[i]  * Math.sin(leftRadAngle);
+        double rightSpeedX = s.rightWheel[i] * Math.cos(rightRadAngle);
+        double rightSpeedY = s.rightWheel[i] * Math.sin(rightRadAngle);
+
+        s.x[i] += (leftSpeedX + rightSpeedX) / 2;
+        s.y[i] += (leftSpeedY + rightSpeedY) / 2;
+
+        // Simple bump sensor: turn away if the robot hits the arena boundaries
+        double r = s.rad[i];
+        if (s.x[i] - r < 0 || s.x[i] + r > xLimit || s.y[i] - r < 0 || s.y[i] + r > yLimit) {
+            s.angle[i] += 100 + (s.nextDouble(i) * 80);  // Turn 100-180 degrees
+        }
+
+        s.clampPosition(i, xLimit, yLimit);
+    }
+
+    /**
+     * Moves a small distance in the current heading.
+     */
+    private void moveForward(RobotStore s, int i, double xLimit, double yLimit) {
+        double radAngle = Math.toRadians(s.angle[i]);
+        s.x[i] += s.speed[i] * Math.cos(radAngle);
+        s.y[i] += s.speed[i] * Math.sin(radAngle);
+        s.clampPosition(i, xLimit, yLimit);
+    }
+
+    /**
+     * Moves along the direction last chosen by the user, if any.
+     */
+    private void moveInDirection(RobotStore s, int i, double xLimit, double yLimit) {
+        switch (s.direction[i]) {
+            case 0: s.y[i] -= s.speed[i]; break;   // UP
+            case 1: s.y[i] += s.speed[i]; break;   // DOWN
+            case 2: s.x[i] -= s.speed[i]; break;   // LEFT
+            case 3: s.x[i] += s.speed[i]; break;   // RIGHT
+            default: break;
+        }
+        s.clampPosition(i, xLimit, yLimit);
+    }
+
+    /**
+     * Check if a sensor line intersects with any arena boundary.
+     * The walls are axis-aligned, so this is worked out directly rather than with Line objects.
+     */
+    private boolean sensorSeesWall(double x1, double y1, double x2, double y2, double xLimit, double yLimit) {
+        if (crossesWall(y1, x1, y2, x2, 0,      xLimit)) return true;   // top wall
+        if (crossesWall(y1, x1, y2, x2, yLimit, xLimit)) return true;   // bottom wall
+        if (crossesWall(x1, y1, x2, y2, 0,      yLimit)) return true;   // left wall
+        if (crossesWall(x1, y1, x2, y2, xLimit, yLimit)) return true;   // right wall
+
+        return false;
+    }
+
+    /**
+     * Checks if the segment from (a1, b1) to (a2, b2) crosses the wall a = wall, 0 &lt;= b &lt;= length.
+     * A segment running along the wall does not count, just as parallel Lines never intersect.
+     */
+    private static boolean crossesWall(double a1, double b1, double a2, double b2, double wall, double length) {
+        if (a1 == a2 || (a1 - wall) * (a2 - wall) > 0) return false;
+        double b = b1 + (b2 - b1) * (wall - a1) / (a2 - a1);
+        return b >= 0 && b <= length;
+    }
+}
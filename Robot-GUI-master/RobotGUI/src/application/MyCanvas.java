@@ -6,10 +6,11 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.TextAlignment;
 import javafx.scene.shape.ArcType;
 
-public class MyCanvas {
+public class MyCanvas implements ArenaCanvas {
     private int xCanvasSize = 600;
     private int yCanvasSize = 500;
     private GraphicsContext gc;
+    private final SpriteAtlas sprites = new SpriteAtlas();   // images of robots, for draw
 
     public MyCanvas(GraphicsContext gc, int xcs, int ycs) {
         this.gc = gc;
@@ -17,15 +18,30 @@ public class MyCanvas {
         this.yCanvasSize = ycs;
     }
 
+    @Override
     public void clearCanvas() {
         gc.clearRect(0, 0, xCanvasSize, yCanvasSize); // Clear the canvas
     }
 
+    @Override
     public void showCircle(double x, double y, double rad, char col) {
         gc.setFill(colFromChar(col));
         gc.fillArc(x - rad, y - rad, rad * 2, rad * 2, 0, 360, ArcType.ROUND);
     }
 
+    @Override
+    public void showPoint(double x, double y, char col) {
+        gc.setFill(colFromChar(col));
+        gc.fillRect(x, y, 1, 1);
+    }
+
+    @Override
+    public void showDensity(double x, double y, double w, double h, int level) {
+        gc.setFill(densityColour(level));
+        gc.fillRect(x, y, w, h);
+    }
+
+    @Override
     public void showText(double x, double y, String s) {
         gc.setTextAlign(TextAlignment.CENTER);
         gc.setTextBaseline(VPos.CENTER);
@@ -33,12 +49,84 @@ public class MyCanvas {
         gc.fillText(s, x, y);
     }
 
+    @Override
     public void showLine(double x1, double y1, double x2, double y2, char col) {
         gc.setStroke(colFromChar(col));
         gc.setLineWidth(2);
         gc.strokeLine(x1, y1, x2, y2);
     }
 
+    /**
+     * Clears the canvas and draws a frame recorded in a DrawBuffer, one path per batch:
+     * every circle of a batch is added to one path that is filled once, and every line of a
+     * batch to one path that is stroked once, so the fill, stroke and line width are only set
+     * once per batch rather than once per shape. Robots are drawn as one image each from the
+     * sprite atlas, or from circles if they are too big to cache.
+     * @param buffer The recorded frame.
+     */
+    public void draw(DrawBuffer buffer) {
+        clearCanvas();
+        if (buffer.borderThickness() > 0) {
+            gc.setStroke(Color.BLACK);
+            drawBorder(buffer.borderWidth(), buffer.borderHeight(), buffer.borderThickness());
+        }
+        gc.setLineWidth(2);
+        for (int b = 0; b < buffer.batches(); b++) {
+            DrawBuffer.Batch batch = buffer.batch(b);
+            double[] c = batch.coords;
+            gc.beginPath();
+            if (batch.shape == DrawBuffer.CIRCLES) {
+                for (int k = 0; k < batch.length; k += 3) {
+                    gc.moveTo(c[k] + c[k + 2], c[k + 1]);
+                    gc.arc(c[k], c[k + 1], c[k + 2], c[k + 2], 0, 360);
+                    gc.closePath();
+                }
+                gc.setFill(colFromChar(batch.colour));
+                gc.fill();
+            } else if (batch.shape == DrawBuffer.POINTS) {
+                for (int k = 0; k < batch.length; k += 2) gc.rect(c[k], c[k + 1], 1, 1);
+                gc.setFill(colFromChar(batch.colour));
+                gc.fill();
+            } else if (batch.shape == DrawBuffer.ROBOTS) {
+                drawRobots(RobotKind.of((byte) batch.colour), c, batch.length);
+            } else if (batch.shape == DrawBuffer.DENSITY) {
+                for (int k = 0; k < batch.length; k += 4) gc.rect(c[k], c[k + 1], c[k + 2], c[k + 3]);
+                gc.setFill(densityColour(batch.colour));
+                gc.fill();
+            } else {
+                for (int k = 0; k < batch.length; k += 4) {
+                    gc.moveTo(c[k], c[k + 1]);
+                    gc.lineTo(c[k + 2], c[k + 3]);
+                }
+                gc.setStroke(colFromChar(batch.colour));
+                gc.stroke();
+            }
+        }
+        double[] xy = buffer.textPositions();
+        for (int t = 0; t < buffer.texts().size(); t++) {
+            showText(xy[2 * t], xy[2 * t + 1], buffer.texts().get(t));
+        }
+    }
+
+    private void drawRobots(RobotKind kind, double[] c, int length) {
+        for (int k = 0; k < length; k += 4) {
+            double x = c[k], y = c[k + 1], rad = c[k + 2], angle = c[k + 3];
+            SpriteAtlas.Page page = sprites.page(kind, rad);
+            if (page == null) {
+                showRobot(x, y, rad, angle, kind);
+                continue;
+            }
+            int h = SpriteAtlas.heading(angle);
+            double half = page.cell / 2.0;
+            gc.drawImage(page.image, page.cellX(h), page.cellY(h), page.cell, page.cell,
+                         x - half, y - half, page.cell, page.cell);
+        }
+    }
+
+    private Color densityColour(int level) {
+        return Color.rgb(0, 0, 0, (double) level / DENSITY_LEVELS);
+    }
+
     private Color colFromChar(char c) {
         switch (c) {
             case 'r':
@@ -59,13 +147,13 @@ public class MyCanvas {
     }
 
     /**
-     * Draws a border around the arena with the specified color and thickness.
+     * Draws a border around the arena with the specified thickness.
      * @param width The width of the arena.
      * @param height The height of the arena.
-     * @param black The color of the border.
      * @param thickness The thickness of the border lines.
      */
-    public void drawBorder(double width, double height, java.awt.Color black, double thickness) {
+    @Override
+    public void drawBorder(double width, double height, double thickness) {
         
         gc.setLineWidth(thickness);
         gc.strokeRect(0, 0, width, height);
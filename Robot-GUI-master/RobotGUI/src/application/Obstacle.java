@@ -44,13 +44,23 @@ public class Obstacle {
     /**
      * Draws the obstacle on the canvas as a circle.
      * 
-     * @param mc The MyCanvas instance used for drawing the obstacle.
+     * @param mc The canvas used for drawing the obstacle.
      */
-    public void drawObstacle(MyCanvas mc) {
+    public void drawObstacle(ArenaCanvas mc) {
         // Draw the obstacle as a circle using the showCircle method
         mc.showCircle(x, y, radius, 'c');  
     }
 
+    /**
+     * Draws the obstacle as seen through a camera.
+     * 
+     * @param mc The canvas used for drawing the obstacle.
+     * @param camera The camera that maps the arena onto the canvas.
+     */
+    void drawObstacle(ArenaCanvas mc, Camera camera) {
+        mc.showCircle(camera.toScreenX(x), camera.toScreenY(y), radius * camera.zoom(), 'c');
+    }
+
     /**
      * Checks if this obstacle is colliding with a robot based on their positions and radii.
      * 
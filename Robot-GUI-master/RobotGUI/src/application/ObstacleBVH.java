@@ -0,0 +1,162 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A bounding-volume hierarchy over the arena's obstacles.
+ * Obstacles never move, so the tree is built once whenever the obstacle set changes
+ * and then shared by the robot-obstacle collision checks and the robot sensors.
+ * Nodes are axis-aligned boxes kept in flat arrays; each leaf holds up to LEAF_SIZE obstacles,
+ * whose circles are also packed into arrays in leaf order for the collision kernel.
+ */
+final class ObstacleBVH {
+    private static final int LEAF_SIZE = 16;   // leaves of 8 to 16 obstacles, each tested in one kernel call
+
+    private List<Obstacle> obstacles = List.of();
+    private int[] order = new int[0];        // obstacle indices, grouped by leaf
+    private double[] ox = new double[0], oy = new double[0], or = new double[0];   // circles, in order[] order
+    private int nodeCount;
+    private double[] minX = new double[0], minY = new double[0], maxX = new double[0], maxY = new double[0];
+    private int[] left = new int[0];          // first child, or -1 for a leaf
+    private int[] start = new int[0], count = new int[0];   // range in order[] covered by the node
+
+    /**
+     * Rebuilds the tree over a new set of obstacles.
+     *
+     * @param obs The obstacles in the arena.
+     */
+    void build(List<Obstacle> obs) {
+        obstacles = obs;
+        int n = obs.size();
+        order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+
+        int maxNodes = Math.max(1, 2 * n);
+        minX = new double[maxNodes];
+        minY = new double[maxNodes];
+        maxX = new double[maxNodes];
+        maxY = new double[maxNodes];
+        left = new int[maxNodes];
+        start = new int[maxNodes];
+        count = new int[maxNodes];
+        nodeCount = 0;
+        if (n > 0) {
+            nodeCount = 1;
+            buildNode(0, 0, n);
+        }
+
+        ox = new double[n];
+        oy = new double[n];
+        or = new double[n];
+        for (int k = 0; k < n; k++) {
+            Obstacle o = obstacles.get(order[k]);
+            ox[k] = o.getX();
+            oy[k] = o.getY();
+            or[k] = o.getRadius();
+        }
+    }
+
+    /**
+     * Counts the obstacles overlapping a circle, using the same test as Obstacle.isColliding.
+     *
+     * @param x The x-coordinate of the circle.
+     * @param y The y-coordinate of the circle.
+     * @param r The radius of the circle.
+     * @return The number of obstacles the circle collides with.
+     */
+    int countColliding(double x, double y, double r) {
+        return nodeCount == 0 ? 0 : countColliding(0, x, y, r);
+    }
+
+    /**
+     * Checks whether a sensor line crosses any obstacle, using Line.intersectsCircle.
+     *
+     * @param line The sensor line.
+     * @return True if the line intersects at least one obstacle.
+     */
+    boolean intersectsAny(Line line) {
+        double[] c = line.getCoords();
+        return intersectsAny(c[0], c[1], c[2], c[3]);
+    }
+
+    /**
+     * Checks whether the segment from x1,y1 to x2,y2 crosses any obstacle, as intersectsAny(Line) does.
+     *
+     * @param x1 The x-coordinate of the start of the segment.
+     * @param y1 The y-coordinate of the start of the segment.
+     * @param x2 The x-coordinate of the end of the segment.
+     * @param y2 The y-coordinate of the end of the segment.
+     * @return True if the segment intersects at least one obstacle.
+     */
+    boolean intersectsAny(double x1, double y1, double x2, double y2) {
+        if (nodeCount == 0) return false;
+        return intersectsAny(0, x1, y1, x2, y2, Math.min(x1, x2), Math.min(y1, y2),
+                             Math.max(x1, x2), Math.max(y1, y2));
+    }
+
+    // The queries recurse rather than keep a stack field so that several threads can share the tree.
+
+    private int countColliding(int node, double x, double y, double r) {
+        if (x + r < minX[node] || x - r > maxX[node] || y + r < minY[node] || y - r > maxY[node]) return 0;
+        if (left[node] >= 0) {
+            return countColliding(left[node], x, y, r) + countColliding(left[node] + 1, x, y, r);
+        }
+        return CollisionKernel.countColliding(ox, oy, or, start[node], start[node] + count[node], x, y, r);
+    }
+
+    private boolean intersectsAny(int node, double x1, double y1, double x2, double y2,
+                                  double lx0, double ly0, double lx1, double ly1) {
+        if (lx1 < minX[node] || lx0 > maxX[node] || ly1 < minY[node] || ly0 > maxY[node]) return false;
+        if (left[node] >= 0) {
+            return intersectsAny(left[node], x1, y1, x2, y2, lx0, ly0, lx1, ly1)
+                || intersectsAny(left[node] + 1, x1, y1, x2, y2, lx0, ly0, lx1, ly1);
+        }
+        for (int k = start[node]; k < start[node] + count[node]; k++) {
+            if (Line.intersectsCircle(x1, y1, x2, y2, ox[k], oy[k], or[k])) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Fills in the node covering order[from..to), splitting on the longer axis at the median centre.
+     * The two children are always stored next to each other, so the right child is left + 1.
+     */
+    private void buildNode(int node, int from, int to) {
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        for (int k = from; k < to; k++) {
+            Obstacle o = obstacles.get(order[k]);
+            x0 = Math.min(x0, o.getX() - o.getRadius());
+            y0 = Math.min(y0, o.getY() - o.getRadius());
+            x1 = Math.max(x1, o.getX() + o.getRadius());
+            y1 = Math.max(y1, o.getY() + o.getRadius());
+        }
+        minX[node] = x0;
+        minY[node] = y0;
+        maxX[node] = x1;
+        maxY[node] = y1;
+        start[node] = from;
+        count[node] = to - from;
+        left[node] = -1;
+
+        if (to - from > LEAF_SIZE) {
+            sortByCentre(from, to, (x1 - x0) >= (y1 - y0));
+            int mid = (from + to) >>> 1;
+            int l = nodeCount;
+            nodeCount += 2;
+            left[node] = l;
+            buildNode(l, from, mid);
+            buildNode(l + 1, mid, to);
+        }
+    }
+
+    private void sortByCentre(int from, int to, boolean alongX) {
+        Integer[] boxed = new Integer[to - from];
+        for (int k = from; k < to; k++) boxed[k - from] = order[k];
+        Arrays.sort(boxed, (a, b) -> alongX
+                ? Double.compare(obstacles.get(a).getX(), obstacles.get(b).getX())
+                : Double.compare(obstacles.get(a).getY(), obstacles.get(b).getY()));
+        for (int k = from; k < to; k++) order[k] = boxed[k - from];
+    }
+}
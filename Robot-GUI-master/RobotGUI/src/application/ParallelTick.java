@@ -0,0 +1,334 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs an arena tick in stages, either on the calling thread or across a fork-join pool.
+ * <ol>
+ * <li>Move: every robot takes its own step, then every TeleportingRobot may jump;
+ *     only the robot's own slot is written.</li>
+ * <li>Interact: lidar scans, sensing, bouncing and obstacle turns are worked out against the
+ *     positions left by the move stage, which nobody writes to during this stage, and then
+ *     every KillerRobot finds its victims against the same positions.
+ *     Each robot's new position, heading and sensor flags go to separate output arrays,
+ *     and victims go to per-thread lists.</li>
+ * <li>Apply: the output arrays are swapped into the store and the victims handed back to
+ *     the arena, which removes them.</li>
+ * </ol>
+ * Because every robot sees the same snapshot and draws from its own random stream,
+ * the result does not depend on the order robots are visited in, so a serial and a parallel
+ * tick from the same seed give the same trajectories.
+ * <p>
+ * That also leaves the tick free to visit robots grouped by kind. At the start of each tick
+ * the slots are listed kind by kind (RobotStore.groupByKind), and every stage runs over
+ * positions in that list, with a loop of its own for each kind it meets. Inside such a loop the
+ * kind is fixed, so no robot is asked for its kind, and the teleport and kill stages only
+ * visit the group of their kind.
+ * <p>
+ * A timed tick records how long each phase took, in the places of TickProfiler's phases, for
+ * the profiler and the flight recorder. When a TickProfiler is passed in, each kind's group
+ * within a stage is also timed by the thread that ran it, into the thread's Worker; the workers'
+ * times and test counts are handed to the profiler at the end of the tick. Untimed ticks read no clock.
+ * The test counts are summed for every tick, timed or not, for the arena's ArenaMetrics.
+ */
+final class ParallelTick {
+    private static final int GRAIN = 256;      // robots handled by one leaf task
+    private static final int MOVE = 0, TELEPORT = 1, INTERACT = 2, KILL = 3;
+    private static final int[] PHASE = {        // the TickProfiler phase of each stage
+        TickProfiler.MOVE, TickProfiler.TELEPORT, TickProfiler.INTERACT, TickProfiler.KILL
+    };
+
+    private final int parallelism;
+    private ForkJoinPool pool;                 // created on the first parallel tick
+    private final MovementSystem movement;
+    private final TeleportSystem teleport;
+    private final SensingSystem sensing;
+    private final KillSystem killing;
+    private final LidarSystem lidar;
+    private final Next next = new Next();
+    private int[] order = new int[0];                                   // slots grouped by kind
+    private final int[] kindStart = new int[RobotKind.values().length + 1];   // where each group starts
+
+    private final List<Worker> workers = new ArrayList<>();
+    private final ThreadLocal<Worker> worker = ThreadLocal.withInitial(() -> {
+        Worker w = new Worker();
+        synchronized (workers) {
+            workers.add(w);
+        }
+        return w;
+    });
+
+    // state of the tick in progress, read by the stage tasks
+    private RobotArena arena;
+    private RobotStore store;
+    private double xLimit, yLimit;
+    private boolean timed;                     // true if this tick's phases are being timed
+    private TickProfiler profiler;             // null unless this tick's kinds are being timed too
+    private final long[] phaseNanos = new long[TickProfiler.PHASES];
+    private long collisionTests, sensorTests;  // summed over the workers at the end of the last tick
+
+    /**
+     * Output arrays for the interact stage, swapped with the store's arrays at the end of a tick.
+     */
+    static final class Next {
+        double[] x = new double[0], y = new double[0], angle = new double[0];
+        byte[] flags = new byte[0];
+
+        private void ensure(int capacity) {
+            if (x.length != capacity) {
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                angle = Arrays.copyOf(angle, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+            }
+        }
+    }
+
+    /**
+     * Scratch space owned by one pool thread.
+     */
+    private static final class Worker {
+        final IndexList nearby = new IndexList();
+        final IndexList victims = new IndexList();
+        final long[] nanos = new long[TickProfiler.PHASES * TickProfiler.SERIES];   // by TickProfiler.series
+        long collisionTests, sensorTests;
+    }
+
+    /**
+     * Constructs a staged tick that shares the arena's systems.
+     *
+     * @param parallelism The number of worker threads for parallel ticks.
+     * @param movement The arena's movement system.
+     * @param teleport The arena's teleport system.
+     * @param sensing The arena's sensing system.
+     * @param killing The arena's kill system.
+     * @param lidar The arena's lidar system.
+     */
+    ParallelTick(int parallelism, MovementSystem movement, TeleportSystem teleport,
+                 SensingSystem sensing, KillSystem killing, LidarSystem lidar) {
+        this.parallelism = parallelism;
+        this.movement = movement;
+        this.teleport = teleport;
+        this.sensing = sensing;
+        this.killing = killing;
+        this.lidar = lidar;
+    }
+
+    /**
+     * Runs one tick.
+     *
+     * @param arena The arena being ticked.
+     * @param s The arena's robot store.
+     * @param victims The list the slots of killed robots are appended to.
+     * @param parallel True to spread the stages across the pool, false to run them on the calling thread.
+     * @param timed True to time each phase, for phaseNanos.
+     * @param profiler The profiler to time each kind's part of the tick with, or null; only used if timed.
+     */
+    void run(RobotArena arena, RobotStore s, IndexList victims, boolean parallel, boolean timed,
+             TickProfiler profiler) {
+        this.arena = arena;
+        this.store = s;
+        this.xLimit = arena.getXSize();
+        this.yLimit = arena.getYSize();
+        this.timed = timed;
+        this.profiler = timed ? profiler : null;
+
+        if (parallel && pool == null) pool = new ForkJoinPool(parallelism);
+        if (order.length != s.capacity()) order = new int[s.capacity()];
+        long t = timed ? System.nanoTime() : 0;
+        s.groupByKind(order, kindStart);
+        t = lap(TickProfiler.GROUP, t);
+        int teleporting = RobotKind.TELEPORTING.ordinal(), killer = RobotKind.KILLER.ordinal();
+
+        // 1. Move
+        runStage(MOVE, 0, s.size, parallel);
+        t = lap(TickProfiler.MOVE, t);
+        runStage(TELEPORT, kindStart[teleporting], kindStart[teleporting + 1], parallel);
+        t = lap(TickProfiler.TELEPORT, t);
+
+        // 2. Interact, against the positions the move stage left behind
+        arena.prepareQueries();
+        t = lap(TickProfiler.PREPARE, t);
+        next.ensure(s.capacity());
+        runStage(INTERACT, 0, s.size, parallel);
+        t = lap(TickProfiler.INTERACT, t);
+        runStage(KILL, kindStart[killer], kindStart[killer + 1], parallel);
+        t = lap(TickProfiler.KILL, t);
+
+        // 3. Apply
+        s.swapMotion(next);
+        collisionTests = 0;
+        sensorTests = 0;
+        synchronized (workers) {
+            for (int j = 0; j < workers.size(); j++) {    // indexed, so no iterator per tick
+                Worker w = workers.get(j);
+                for (int k = 0; k < w.victims.size(); k++) victims.add(w.victims.get(k));
+                w.victims.clear();
+                if (profiler != null) {
+                    profiler.addKindNanos(w.nanos);
+                    profiler.addTests(w.collisionTests, w.sensorTests);
+                }
+                collisionTests += w.collisionTests;
+                sensorTests += w.sensorTests;
+                w.collisionTests = 0;
+                w.sensorTests = 0;
+            }
+        }
+        lap(TickProfiler.APPLY, t);
+        if (profiler != null) profiler.endTick(kindStart);
+        this.arena = null;
+        this.store = null;
+        this.profiler = null;
+    }
+
+    /**
+     * Gets how long each phase of the last timed tick took.
+     *
+     * @return Nanoseconds per TickProfiler phase, up to APPLY; the later phases are left to the caller.
+     */
+    long[] phaseNanos() {
+        return phaseNanos;
+    }
+
+    /**
+     * Gets the number of robot pairs tested for a collision in the last tick, over all threads.
+     *
+     * @return The collision tests.
+     */
+    long collisionTests() {
+        return collisionTests;
+    }
+
+    /**
+     * Gets the number of robots tested against a sensor line in the last tick, over all threads.
+     *
+     * @return The sensor tests.
+     */
+    long sensorTests() {
+        return sensorTests;
+    }
+
+    /**
+     * Records the time since a phase started, if the tick is being timed.
+     *
+     * @return The time now, when the next phase starts.
+     */
+    private long lap(int phase, long start) {
+        if (!timed) return 0;
+        long now = System.nanoTime();
+        phaseNanos[phase] = now - start;
+        return now;
+    }
+
+    /**
+     * Stops the worker threads, if any were started.
+     */
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Runs a stage over a range of positions in order.
+     */
+    private void runStage(int stage, int from, int to, boolean parallel) {
+        if (from == to) return;
+        if (parallel) {
+            pool.invoke(new Stage(stage, from, to));
+        } else {
+            runRange(stage, from, to);    // no task objects, so a serial tick allocates nothing
+        }
+    }
+
+    /**
+     * Runs a stage over a range of positions in order, one kind's group at a time.
+     */
+    private void runRange(int stage, int from, int to) {
+        for (int k = 0; k < kindStart.length - 1; k++) {
+            int lo = Math.max(from, kindStart[k]), hi = Math.min(to, kindStart[k + 1]);
+            if (lo < hi) runGroup(stage, RobotKind.of((byte) k), lo, hi);
+        }
+    }
+
+    private void runGroup(int stage, RobotKind k, int from, int to) {
+        if (profiler == null) {
+            runKind(stage, k, from, to);
+        } else {
+            long start = System.nanoTime();
+            runKind(stage, k, from, to);
+            worker.get().nanos[TickProfiler.series(PHASE[stage], k.ordinal())] += System.nanoTime() - start;
+        }
+    }
+
+    private void runKind(int stage, RobotKind k, int from, int to) {
+        switch (stage) {
+            case MOVE:
+                movement.moveAll(store, k, order, from, to, xLimit, yLimit);
+                break;
+            case TELEPORT:
+                for (int n = from; n < to; n++) teleport.teleportOne(store, order[n], xLimit, yLimit);
+                break;
+            case INTERACT:
+                interactAll(k, from, to, worker.get());
+                break;
+            default: {
+                Worker w = worker.get();
+                for (int n = from; n < to; n++) killing.killOne(arena, store, order[n], w.victims, w.nearby);
+                break;
+            }
+        }
+    }
+
+    private void interactAll(RobotKind k, int from, int to, Worker w) {
+        RobotStore s = store;
+        boolean senses = SensingSystem.senses(k), bounces = MovementSystem.bounces(k);
+        for (int n = from; n < to; n++) {
+            int i = order[n];
+            next.x[i] = s.x[i];
+            next.y[i] = s.y[i];
+            next.angle[i] = s.angle[i];
+            next.flags[i] = s.flags[i];
+
+            lidar.scanOne(arena, s, i);
+            if (senses) {
+                sensing.senseOne(arena, s, i, next.angle, next.flags, w.nearby);
+                w.sensorTests += w.nearby.size();      // every candidate is tested against both lines
+            }
+            if (bounces) {
+                movement.bounceOne(arena, s, i, next.x, next.y, next.angle, w.nearby);
+                w.collisionTests += w.nearby.size();
+            }
+            movement.avoidObstaclesOne(arena, s, i, next.x, next.y, next.angle);
+        }
+    }
+
+    /**
+     * One stage over a range of positions in order, split in half until the range is small enough.
+     */
+    private final class Stage extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int stage, from, to;
+
+        Stage(int stage, int from, int to) {
+            this.stage = stage;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Stage(stage, from, mid), new Stage(stage, mid, to));
+            } else {
+                runRange(stage, from, to);
+            }
+        }
+    }
+}
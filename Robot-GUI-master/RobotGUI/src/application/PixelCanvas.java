@@ -0,0 +1,61 @@
+package application;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Draws frames recorded in a DrawBuffer by rasterising them with a PixelRenderer and showing the
+ * pixels as one image, so JavaFX draws one image per frame however many robots there are.
+ * The alternative to MyCanvas.draw for very large populations.
+ */
+public class PixelCanvas {
+    private final GraphicsContext gc;
+    private final PixelRenderer renderer;
+    private WritableImage image;
+
+    /**
+     * Constructs a pixel canvas that draws into a GraphicsContext.
+     *
+     * @param gc The graphics context of the canvas to draw on.
+     * @param xcs The width of the canvas in pixels.
+     * @param ycs The height of the canvas in pixels.
+     */
+    public PixelCanvas(GraphicsContext gc, int xcs, int ycs) {
+        this.gc = gc;
+        this.renderer = new PixelRenderer(Runtime.getRuntime().availableProcessors());
+        renderer.resize(xcs, ycs);
+    }
+
+    /**
+     * Rasterises a recorded frame and draws it over the whole canvas, then draws its text on top.
+     *
+     * @param buffer The recorded frame.
+     */
+    public void draw(DrawBuffer buffer) {
+        renderer.render(buffer);
+        int w = renderer.width(), h = renderer.height();
+        if (image == null) image = new WritableImage(w, h);
+        image.getPixelWriter().setPixels(0, 0, w, h, PixelFormat.getIntArgbPreInstance(),
+                                         renderer.pixels(), 0, w);
+        gc.drawImage(image, 0, 0);
+
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.setFill(Color.WHITE);
+        double[] xy = buffer.textPositions();
+        for (int t = 0; t < buffer.texts().size(); t++) {
+            gc.fillText(buffer.texts().get(t), xy[2 * t], xy[2 * t + 1]);
+        }
+    }
+
+    /**
+     * Stops the threads that rasterise frames.
+     */
+    public void shutdown() {
+        renderer.shutdown();
+    }
+}
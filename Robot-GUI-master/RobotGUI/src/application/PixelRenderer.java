@@ -0,0 +1,351 @@
+package application;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Draws a frame recorded in a DrawBuffer straight into an array of ARGB pixels, for populations
+ * too big to draw through a GraphicsContext at interactive rates. The GUI copies the pixels into
+ * an image and draws that; see PixelCanvas.
+ * <p>
+ * The image is cut into horizontal bands, and each band is drawn by one task: it goes through
+ * every batch in order and draws the part of each shape that falls in its own rows. No two tasks
+ * write the same pixel, so the bands need no locking, and the result is the same whether they
+ * are drawn on one thread or across the pool. Circles are filled a row at a time, lines are two
+ * pixels wide like MyCanvas's, and density shades are blended over what is underneath.
+ * Text is left for the caller to draw on top.
+ * Nothing here touches JavaFX.
+ */
+final class PixelRenderer {
+    /** Colour the image is cleared to: opaque white, like an empty canvas on the window. */
+    static final int BACKGROUND = 0xFFFFFFFF;
+    private static final int MIN_BAND_ROWS = 16;   // bands are not cut thinner than this
+
+    private final int parallelism;
+    private ForkJoinPool pool;                     // created on the first parallel frame
+    private int width, height;
+    private int[] pixels = new int[0];
+    private Band[] bands = new Band[0];
+    private DrawBuffer buffer;                     // the frame being drawn, read by the band tasks
+
+    /**
+     * Constructs a renderer that draws on the calling thread only.
+     */
+    PixelRenderer() {
+        this(1);
+    }
+
+    /**
+     * Constructs a renderer.
+     *
+     * @param parallelism The number of worker threads to draw bands on; 1 draws on the calling thread.
+     */
+    PixelRenderer(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Sets the size of the image, keeping the pixel array if it is already that size.
+     *
+     * @param width The width in pixels.
+     * @param height The height in pixels.
+     */
+    void resize(int width, int height) {
+        if (width == this.width && height == this.height) return;
+        this.width = width;
+        this.height = height;
+        pixels = new int[width * height];
+        int n = Math.max(1, Math.min(2 * parallelism, height / MIN_BAND_ROWS));
+        bands = new Band[n];
+        for (int b = 0; b < n; b++) {
+            bands[b] = new Band(pixels, width, b * height / n, (b + 1) * height / n);
+        }
+    }
+
+    /**
+     * Gets the pixels of the last frame drawn, a row at a time from the top.
+     *
+     * @return The pixels as ARGB, with premultiplied alpha since every pixel is opaque.
+     */
+    int[] pixels() {
+        return pixels;
+    }
+
+    /**
+     * Gets the width of the image.
+     *
+     * @return The width in pixels.
+     */
+    int width() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the image.
+     *
+     * @return The height in pixels.
+     */
+    int height() {
+        return height;
+    }
+
+    /**
+     * Clears the image and draws every batch of a frame into it.
+     *
+     * @param buffer The recorded frame.
+     */
+    void render(DrawBuffer buffer) {
+        this.buffer = buffer;
+        if (bands.length > 1 && parallelism > 1) {
+            if (pool == null) pool = new ForkJoinPool(parallelism);
+            pool.invoke(new Bands(0, bands.length));
+        } else {
+            for (Band band : bands) band.draw(buffer);
+        }
+        this.buffer = null;
+    }
+
+    /**
+     * Stops the worker threads, if any were started.
+     */
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Converts a colour character to an opaque ARGB colour, matching MyCanvas.
+     *
+     * @param c The colour character.
+     * @return The colour.
+     */
+    static int argb(char c) {
+        switch (c) {
+            case 'r':
+                return 0xFFFF0000;
+            case 'g':
+                return 0xFF008000;
+            case 'b':
+                return 0xFF0000FF;
+            case 'y':
+                return 0xFFFFFF00;
+            case 'w':
+                return 0xFFFFFFFF;
+            case 'o':
+                return 0xFF800080;
+            default:
+                return 0xFF000000;
+        }
+    }
+
+    /**
+     * A range of bands, split in half until one is left.
+     */
+    private final class Bands extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from, to;
+
+        Bands(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Bands(from, mid), new Bands(mid, to));
+            } else {
+                bands[from].draw(buffer);
+            }
+        }
+    }
+
+    /**
+     * The rows from y0 up to y1 of the image, as a canvas that draws only into those rows.
+     * Robots are drawn through the default ArenaCanvas.showRobot, so they keep their shape.
+     */
+    private static final class Band implements ArenaCanvas {
+        private final int[] pixels;
+        private final int width, y0, y1;
+        private double t0, t1;                     // the part of a line left by clip, from 0 to 1
+
+        Band(int[] pixels, int width, int y0, int y1) {
+            this.pixels = pixels;
+            this.width = width;
+            this.y0 = y0;
+            this.y1 = y1;
+        }
+
+        void draw(DrawBuffer buffer) {
+            clearCanvas();
+            if (buffer.borderThickness() > 0) {
+                drawBorder(buffer.borderWidth(), buffer.borderHeight(), buffer.borderThickness());
+            }
+            for (int b = 0; b < buffer.batches(); b++) {
+                DrawBuffer.Batch batch = buffer.batch(b);
+                double[] c = batch.coords;
+                int n = batch.length;
+                switch (batch.shape) {
+                    case DrawBuffer.CIRCLES: {
+                        int argb = argb(batch.colour);
+                        for (int k = 0; k < n; k += 3) fillCircle(c[k], c[k + 1], c[k + 2], argb);
+                        break;
+                    }
+                    case DrawBuffer.POINTS: {
+                        int argb = argb(batch.colour);
+                        for (int k = 0; k < n; k += 2) plot((int) Math.floor(c[k]), (int) Math.floor(c[k + 1]), argb);
+                        break;
+                    }
+                    case DrawBuffer.ROBOTS: {
+                        RobotKind kind = RobotKind.of((byte) batch.colour);
+                        for (int k = 0; k < n; k += 4) {
+                            double y = c[k + 1], reach = c[k + 2] * 1.6 + 1;   // wheels stick out about 1.6 radii
+                            if (y + reach < y0 || y - reach > y1) continue;
+                            showRobot(c[k], y, c[k + 2], c[k + 3], kind);
+                        }
+                        break;
+                    }
+                    case DrawBuffer.DENSITY: {
+                        int level = batch.colour;
+                        for (int k = 0; k < n; k += 4) shadeRect(c[k], c[k + 1], c[k + 2], c[k + 3], level);
+                        break;
+                    }
+                    default: {
+                        int argb = argb(batch.colour);
+                        for (int k = 0; k < n; k += 4) line(c[k], c[k + 1], c[k + 2], c[k + 3], argb);
+                        break;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void clearCanvas() {
+            Arrays.fill(pixels, y0 * width, y1 * width, BACKGROUND);
+        }
+
+        @Override
+        public void showCircle(double x, double y, double rad, char col) {
+            fillCircle(x, y, rad, argb(col));
+        }
+
+        @Override
+        public void showPoint(double x, double y, char col) {
+            plot((int) Math.floor(x), (int) Math.floor(y), argb(col));
+        }
+
+        @Override
+        public void showDensity(double x, double y, double w, double h, int level) {
+            shadeRect(x, y, w, h, level);
+        }
+
+        @Override
+        public void showText(double x, double y, String s) {
+            // drawn by the caller, over the finished image
+        }
+
+        @Override
+        public void showLine(double x1, double y1, double x2, double y2, char col) {
+            line(x1, y1, x2, y2, argb(col));
+        }
+
+        @Override
+        public void drawBorder(double width, double height, double thickness) {
+            int black = argb('k');
+            line(0, 0, width, 0, black);
+            line(width, 0, width, height, black);
+            line(width, height, 0, height, black);
+            line(0, height, 0, 0, black);
+        }
+
+        /**
+         * Fills the pixels whose centres lie inside a circle, one span per row.
+         */
+        private void fillCircle(double cx, double cy, double r, int argb) {
+            int top = Math.max(y0, (int) Math.ceil(cy - r - 0.5));
+            int bottom = Math.min(y1 - 1, (int) Math.floor(cy + r - 0.5));
+            double r2 = r * r;
+            for (int row = top; row <= bottom; row++) {
+                double dy = row + 0.5 - cy;
+                double half = Math.sqrt(Math.max(0, r2 - dy * dy));
+                int from = Math.max(0, (int) Math.ceil(cx - half - 0.5));
+                int to = Math.min(width - 1, (int) Math.floor(cx + half - 0.5));
+                if (from <= to) Arrays.fill(pixels, row * width + from, row * width + to + 1, argb);
+            }
+        }
+
+        /**
+         * Darkens a rectangle as black drawn at level / DENSITY_LEVELS opacity would.
+         */
+        private void shadeRect(double x, double y, double w, double h, int level) {
+            int top = Math.max(y0, (int) Math.floor(y)), bottom = Math.min(y1, (int) Math.ceil(y + h));
+            int from = Math.max(0, (int) Math.floor(x)), to = Math.min(width, (int) Math.ceil(x + w));
+            int keep = 256 * (DENSITY_LEVELS - level) / DENSITY_LEVELS;   // share of the colour left, out of 256
+            for (int row = top; row < bottom; row++) {
+                for (int p = row * width + from; p < row * width + to; p++) {
+                    int v = pixels[p];
+                    int r = ((v >> 16) & 0xFF) * keep >> 8;
+                    int g = ((v >> 8) & 0xFF) * keep >> 8;
+                    int b = (v & 0xFF) * keep >> 8;
+                    pixels[p] = 0xFF000000 | r << 16 | g << 8 | b;
+                }
+            }
+        }
+
+        /**
+         * Draws a line two pixels wide, stepping along its longer axis, after cutting it down to
+         * the part near this band.
+         */
+        private void line(double xa, double ya, double xb, double yb, int argb) {
+            double dx = xb - xa, dy = yb - ya;
+            // Liang-Barsky clip against the image's columns and this band's rows, with a pixel to spare
+            t0 = 0;
+            t1 = 1;
+            if (!clip(-dx, xa + 1) || !clip(dx, width + 1 - xa)
+                    || !clip(-dy, ya - (y0 - 1)) || !clip(dy, y1 + 1 - ya)) return;
+            double ax = xa + dx * t0, ay = ya + dy * t0;
+            double bx = xa + dx * t1, by = ya + dy * t1;
+            if (Math.abs(dx) >= Math.abs(dy)) {
+                if (ax > bx) { double s = ax; ax = bx; bx = s; s = ay; ay = by; by = s; }
+                double slope = dx == 0 ? 0 : dy / dx;
+                for (int col = (int) Math.floor(ax); col <= (int) Math.floor(bx); col++) {
+                    int row = (int) Math.round(ay + (col + 0.5 - ax) * slope);
+                    plot(col, row - 1, argb);
+                    plot(col, row, argb);
+                }
+            } else {
+                if (ay > by) { double s = ax; ax = bx; bx = s; s = ay; ay = by; by = s; }
+                double slope = dx / dy;
+                for (int row = (int) Math.floor(ay); row <= (int) Math.floor(by); row++) {
+                    int col = (int) Math.round(ax + (row + 0.5 - ay) * slope);
+                    plot(col - 1, row, argb);
+                    plot(col, row, argb);
+                }
+            }
+        }
+
+        private void plot(int col, int row, int argb) {
+            if (col >= 0 && col < width && row >= y0 && row < y1) pixels[row * width + col] = argb;
+        }
+
+        /**
+         * One edge of a Liang-Barsky clip: narrows t0 to t1 to where p * t <= q.
+         */
+        private boolean clip(double p, double q) {
+            if (p == 0) return q >= 0;
+            double r = q / p;
+            if (p < 0) {
+                if (r > t1) return false;
+                if (r > t0) t0 = r;
+            } else {
+                if (r < t0) return false;
+                if (r < t1) t1 = r;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * A canvas over the arena showing where the time goes: the tick phases timed by the arena's
+ * TickProfiler, as published in each Frame, and the phases of drawing a frame on the FX thread,
+ * timed here. Each line gives p50, p99 and max since the overlay was switched on.
+ * The text is redrawn a few times a second, not every frame. While the overlay is off, lap only
+ * checks a flag, and nothing is timed or drawn.
+ */
+final class ProfilerOverlay {
+    /** Render phase: drawing the border and obstacles layer, when it changed. */
+    static final int STATIC = 0;
+    /** Render phase: recording the robots into the DrawBuffer. */
+    static final int RECORD = 1;
+    /** Render phase: drawing the recorded frame on the canvas. */
+    static final int SHOW = 2;
+    /** Render phase: updating the status pane. */
+    static final int STATUS = 3;
+    private static final String[] RENDER_NAMES = {"draw static", "draw record", "draw show", "draw status"};
+    private static final long REFRESH_NANOS = 250_000_000L;   // 4 times a second
+    private static final double LINE_HEIGHT = 13;
+
+    private final Canvas canvas;
+    private final LatencyHistogram[] render = new LatencyHistogram[RENDER_NAMES.length];
+    private final List<String> lines = new ArrayList<>();
+    private boolean on;
+    private long shownAt;
+
+    /**
+     * Constructs an overlay, switched off, that draws on a canvas over the arena.
+     *
+     * @param canvas The canvas to draw on, which should let the mouse through.
+     */
+    ProfilerOverlay(Canvas canvas) {
+        this.canvas = canvas;
+        for (int p = 0; p < render.length; p++) render[p] = new LatencyHistogram();
+    }
+
+    /**
+     * Checks whether the overlay is shown.
+     *
+     * @return True while switched on.
+     */
+    boolean isOn() {
+        return on;
+    }
+
+    /**
+     * Shows or hides the overlay. Showing it starts the render histograms afresh.
+     *
+     * @param show True to show it.
+     */
+    void setOn(boolean show) {
+        on = show;
+        if (show) {
+            for (LatencyHistogram h : render) h.reset();
+            shownAt = System.nanoTime() - REFRESH_NANOS;
+        } else {
+            canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        }
+    }
+
+    /**
+     * Records the time since a render phase started, if the overlay is on.
+     *
+     * @param phase The render phase.
+     * @param start When the phase started, from the last lap or System.nanoTime().
+     * @return The time now, when the next phase starts, or 0 if the overlay is off.
+     */
+    long lap(int phase, long start) {
+        if (!on) return 0;
+        long now = System.nanoTime();
+        render[phase].record(now - start);
+        return now;
+    }
+
+    /**
+     * Redraws the overlay from the latest frame, unless it was redrawn too recently.
+     *
+     * @param f The latest frame.
+     * @param now The current System.nanoTime().
+     */
+    void update(Frame f, long now) {
+        if (!on || now - shownAt < REFRESH_NANOS) return;
+        shownAt = now;
+
+        lines.clear();
+        if (f.profiled) {
+            TickProfiler.report(f.profile, lines);
+        } else {
+            lines.add("waiting for the simulation...");
+        }
+        for (int p = 0; p < render.length; p++) {
+            LatencyHistogram h = render[p];
+            lines.add(TickProfiler.reportLine(RENDER_NAMES[p], h.percentile(0.5), h.percentile(0.99), h.max()));
+        }
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.setFill(Color.rgb(0, 0, 0, 0.6));
+        gc.fillRect(0, 0, canvas.getWidth(), Math.min(canvas.getHeight(), lines.size() * LINE_HEIGHT + 6));
+        gc.setFont(Font.font("Monospaced", 10));
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.TOP);
+        gc.setFill(Color.WHITE);
+        for (int l = 0; l < lines.size(); l++) {
+            gc.fillText(lines.get(l), 4, 3 + l * LINE_HEIGHT);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A uniform occupancy grid over every robot and obstacle, for casting rays.
+ * Each circle is listed in every cell its bounding box touches, in one flat array grouped by
+ * cell, with the circle's position and radius copied next to it so a cell's entries are read
+ * in order. A ray walks the cells it crosses with a DDA (Amanatides and Woo) and stops as soon
+ * as the nearest hit so far lies before the cell it is about to enter, so its cost grows with
+ * the distance covered rather than with the number of robots.
+ * The grid is rebuilt from scratch each time; after a build any number of threads may cast.
+ */
+final class RayGrid {
+    private static final double MIN_CELL = 8;       // smallest cell, for arenas of tiny robots
+    private static final int MAX_CELLS = 1 << 18;   // cells are made bigger rather than exceed this
+
+    private double cellSize = 1, xSize, ySize;
+    private int cols, rows, robots;
+    private int[] cellStart = new int[1];           // entries of cell c are cellStart[c] until cellStart[c + 1]
+    private int[] cursor = new int[0];              // fill position of each cell while building
+
+    // entries, grouped by cell
+    private double[] ex = new double[0], ey = new double[0], er = new double[0];
+    private int[] circle = new int[0];              // robot slot, or robots + obstacle index
+
+    private int[] robotID = new int[0];             // ID of each robot slot at the last build
+
+    /**
+     * Indexes the robots and obstacles where they are now.
+     *
+     * @param s The store holding the robots.
+     * @param obstacles The arena's obstacles.
+     * @param xSize The width of the arena.
+     * @param ySize The height of the arena.
+     */
+    void build(RobotStore s, List<Obstacle> obstacles, double xSize, double ySize) {
+        this.xSize = xSize;
+        this.ySize = ySize;
+        robots = s.size;
+        int total = robots + obstacles.size();
+
+        double maxRad = 0;
+        for (int i = 0; i < robots; i++) maxRad = Math.max(maxRad, s.rad[i]);
+        cellSize = Math.max(Math.max(2 * maxRad, MIN_CELL), Math.sqrt(xSize * ySize / MAX_CELLS));
+        cols = (int) Math.max(1, Math.ceil(xSize / cellSize));
+        rows = (int) Math.max(1, Math.ceil(ySize / cellSize));
+        int cells = cols * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+            cursor = new int[cells];
+        }
+        if (robotID.length < robots) robotID = new int[s.capacity()];
+        System.arraycopy(s.id, 0, robotID, 0, robots);
+
+        // 1. count the entries of each cell
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+        for (int c = 0; c < total; c++) {
+            double x = xOf(s, obstacles, c), y = yOf(s, obstacles, c), r = radOf(s, obstacles, c);
+            int c0 = column(x - r), c1 = column(x + r), r0 = row(y - r), r1 = row(y + r);
+            for (int row = r0; row <= r1; row++) {
+                for (int col = c0; col <= c1; col++) cellStart[row * cols + col + 1]++;
+            }
+        }
+
+        // 2. turn the counts into start positions
+        for (int c = 0; c < cells; c++) cellStart[c + 1] += cellStart[c];
+        int entries = cellStart[cells];
+        if (ex.length < entries) {
+            int cap = Math.max(entries, ex.length + ex.length / 2);
+            ex = new double[cap];
+            ey = new double[cap];
+            er = new double[cap];
+            circle = new int[cap];
+        }
+        System.arraycopy(cellStart, 0, cursor, 0, cells);
+
+        // 3. fill in the entries
+        for (int c = 0; c < total; c++) {
+            double x = xOf(s, obstacles, c), y = yOf(s, obstacles, c), r = radOf(s, obstacles, c);
+            int c0 = column(x - r), c1 = column(x + r), r0 = row(y - r), r1 = row(y + r);
+            for (int row = r0; row <= r1; row++) {
+                for (int col = c0; col <= c1; col++) {
+                    int e = cursor[row * cols + col]++;
+                    ex[e] = x;
+                    ey[e] = y;
+                    er[e] = r;
+                    circle[e] = c;
+                }
+            }
+        }
+    }
+
+    /**
+     * Casts one ray and records what it hits first.
+     * Circles that contain the start of the ray are ignored, so a robot's own body does not
+     * block the rays it casts from its centre. A ray that starts outside the arena hits the wall at once.
+     *
+     * @param ox The x-coordinate of the start of the ray.
+     * @param oy The y-coordinate of the start of the ray.
+     * @param dx The x-component of the ray's direction, which must be a unit vector.
+     * @param dy The y-component of the ray's direction.
+     * @param range The furthest the ray can see.
+     * @param out The results to write to.
+     * @param k The index in out to write.
+     */
+    void cast(double ox, double oy, double dx, double dy, double range, RayHits out, int k) {
+        // the walls bound every ray
+        double wall;
+        if (ox < 0 || ox > xSize || oy < 0 || oy > ySize) {
+            wall = 0;
+        } else {
+            double tx = dx > 0 ? (xSize - ox) / dx : dx < 0 ? -ox / dx : Double.POSITIVE_INFINITY;
+            double ty = dy > 0 ? (ySize - oy) / dy : dy < 0 ? -oy / dy : Double.POSITIVE_INFINITY;
+            wall = Math.min(tx, ty);
+        }
+        double best = Math.min(wall, range);
+        int hit = -1;
+
+        int col = column(ox), row = row(oy);
+        int stepX = dx > 0 ? 1 : -1, stepY = dy > 0 ? 1 : -1;
+        double nextX = dx > 0 ? ((col + 1) * cellSize - ox) / dx
+                     : dx < 0 ? (col * cellSize - ox) / dx : Double.POSITIVE_INFINITY;
+        double nextY = dy > 0 ? ((row + 1) * cellSize - oy) / dy
+                     : dy < 0 ? (row * cellSize - oy) / dy : Double.POSITIVE_INFINITY;
+        double deltaX = dx != 0 ? cellSize / Math.abs(dx) : Double.POSITIVE_INFINITY;
+        double deltaY = dy != 0 ? cellSize / Math.abs(dy) : Double.POSITIVE_INFINITY;
+
+        while (true) {
+            int cell = row * cols + col;
+            for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+                double fx = ox - ex[e], fy = oy - ey[e];
+                double b = fx * dx + fy * dy;
+                double c = fx * fx + fy * fy - er[e] * er[e];
+                if (c <= 0 || b >= 0) continue;         // starts inside, or heading away
+                double disc = b * b - c;
+                if (disc < 0) continue;
+                double t = -b - Math.sqrt(disc);
+                if (t < best) {
+                    best = t;
+                    hit = circle[e];
+                }
+            }
+            // anything hit after leaving this cell would be further away
+            double exit = Math.min(nextX, nextY);
+            if (best <= exit) break;
+            if (nextX < nextY) {
+                col += stepX;
+                nextX += deltaX;
+                if (col < 0 || col >= cols) break;
+            } else {
+                row += stepY;
+                nextY += deltaY;
+                if (row < 0 || row >= rows) break;
+            }
+        }
+
+        if (hit >= robots) {
+            out.set(k, best, RayHits.Kind.OBSTACLE, hit - robots);
+        } else if (hit >= 0) {
+            out.set(k, best, RayHits.Kind.ROBOT, robotID[hit]);
+        } else {
+            out.set(k, best, wall <= range ? RayHits.Kind.WALL : RayHits.Kind.NONE, -1);
+        }
+    }
+
+    private double xOf(RobotStore s, List<Obstacle> obstacles, int c) {
+        return c < robots ? s.x[c] : obstacles.get(c - robots).getX();
+    }
+
+    private double yOf(RobotStore s, List<Obstacle> obstacles, int c) {
+        return c < robots ? s.y[c] : obstacles.get(c - robots).getY();
+    }
+
+    private double radOf(RobotStore s, List<Obstacle> obstacles, int c) {
+        return c < robots ? s.rad[c] : obstacles.get(c - robots).getRadius();
+    }
+
+    private int column(double x) {
+        int c = (int) Math.floor(x / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int row(double y) {
+        int r = (int) Math.floor(y / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+}
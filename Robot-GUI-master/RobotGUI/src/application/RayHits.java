@@ -0,0 +1,112 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Results of a batch of ray casts: for each ray, how far it got and what stopped it.
+ * Kept as parallel arrays so that a batch can be filled without creating an object per ray,
+ * and reused from one batch to the next.
+ */
+public final class RayHits {
+    /**
+     * What a ray hit first.
+     */
+    public enum Kind {
+        /** Nothing within range. */
+        NONE,
+        /** The edge of the arena. */
+        WALL,
+        /** An obstacle; the target is the obstacle's index in RobotArena.getObstacles(). */
+        OBSTACLE,
+        /** A robot; the target is the robot's ID. */
+        ROBOT
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    double[] distance;
+    byte[] kind;                    // Kind ordinal
+    int[] target;                   // robot ID or obstacle index, -1 for NONE and WALL
+
+    /**
+     * Constructs an empty set of results.
+     *
+     * @param capacity The number of rays to make room for.
+     */
+    public RayHits(int capacity) {
+        distance = new double[capacity];
+        kind = new byte[capacity];
+        target = new int[capacity];
+        Arrays.fill(target, -1);
+    }
+
+    /**
+     * Gets the number of rays the results have room for.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return distance.length;
+    }
+
+    /**
+     * Gets how far a ray travelled before it hit something.
+     *
+     * @param k The index of the ray in the batch.
+     * @return The distance to the first hit, or the ray's range if nothing was hit.
+     */
+    public double distance(int k) {
+        return distance[k];
+    }
+
+    /**
+     * Gets what a ray hit first.
+     *
+     * @param k The index of the ray in the batch.
+     * @return The kind of thing hit.
+     */
+    public Kind kind(int k) {
+        return KINDS[kind[k]];
+    }
+
+    /**
+     * Gets which robot or obstacle a ray hit.
+     *
+     * @param k The index of the ray in the batch.
+     * @return The robot ID or obstacle index, or -1 if the ray hit a wall or nothing.
+     */
+    public int target(int k) {
+        return target[k];
+    }
+
+    /**
+     * Records the result of one ray.
+     */
+    void set(int k, double d, Kind hit, int what) {
+        distance[k] = d;
+        kind[k] = (byte) hit.ordinal();
+        target[k] = what;
+    }
+
+    /**
+     * Grows the arrays, keeping their contents, so that they hold at least the given number of rays.
+     */
+    void ensure(int capacity) {
+        if (distance.length < capacity) {
+            int old = distance.length;
+            distance = Arrays.copyOf(distance, capacity);
+            kind = Arrays.copyOf(kind, capacity);
+            target = Arrays.copyOf(target, capacity);
+            Arrays.fill(target, old, capacity, -1);
+        }
+    }
+
+    /**
+     * Moves a range of results within the arrays, as System.arraycopy does.
+     */
+    void move(int from, int to, int length) {
+        System.arraycopy(distance, from, distance, to, length);
+        System.arraycopy(kind, from, kind, to, length);
+        System.arraycopy(target, from, target, to, length);
+    }
+}
@@ -1,17 +1,20 @@
 package application;
 
-import javafx.scene.image.Image;
+import java.util.Objects;
 
 /**
  * Abstract class representing a Robot.
+ * A robot object is a thin view onto one slot of a RobotStore and holds nothing but that slot
+ * and the robot's ID. Until it is added to an arena its state lives in a store of its own with
+ * a single slot, which is dropped when the arena's store takes the state over.
+ * Once removed from an arena a robot is cut off from any store: only getID and getHandle
+ * may still be called, as copying its state out would cost an allocation per removal.
  */
 public abstract class Robot {
-    protected double x, y, rad, size; // Position and size
-    protected char col;        
     protected int robotID;     // Unique identifier
     static int robotCounter = 0;
-    protected double bAngle;      // Movement angle in degrees
-    protected double bSpeed;      // Movement speed
+    RobotStore store;          // Store holding this robot's state, null once removed from an arena
+    int slot;                  // Slot of this robot in store
     
     /**
      * Constructs a Robot with specified position and radius.
@@ -21,11 +24,25 @@ public abstract class Robot {
      * @param ir Initial radius of the robot.
      */
     Robot (double ix, double iy, double ir) {
-        x = ix;
-        y = iy;
-        rad = ir;
         robotID = robotCounter++; // set the identifier and increment class static
-        col = 'r';
+        store = RobotStore.loose(kind(), robotID);
+        slot = 0;
+        store.x[0] = ix;
+        store.y[0] = iy;
+        store.rad[0] = ir;
+    }
+
+    /**
+     * Constructs a view onto a robot whose state is already in a slot of a store, as when a
+     * snapshot is loaded. The robot keeps the ID stored there, so no new ID is used up.
+     * 
+     * @param s The store holding the robot.
+     * @param i The robot's slot.
+     */
+    Robot(RobotStore s, int i) {
+        robotID = s.id[i];
+        store = s;
+        slot = i;
     }
 
     /**
@@ -34,7 +51,7 @@ public abstract class Robot {
      * @return The x-coordinate of the robot.
      */
     public double getX() { 
-        return x; 
+        return store.x[slot]; 
     }
 
     /**
@@ -43,7 +60,7 @@ public abstract class Robot {
      * @return The y-coordinate of the robot.
      */
     public double getY() { 
-        return y; 
+        return store.y[slot]; 
     }
 
     /**
@@ -52,7 +69,7 @@ public abstract class Robot {
      * @return The radius of the robot.
      */
     public double getRad() { 
-        return rad; 
+        return store.rad[slot]; 
     }
 
     /**
@@ -62,8 +79,8 @@ public abstract class Robot {
      * @param ny The new y-coordinate.
      */
     public void setXY(double nx, double ny) {
-        x = nx;
-        y = ny;
+        store.x[slot] = nx;
+        store.y[slot] = ny;
     }
 
     /**
@@ -75,13 +92,33 @@ public abstract class Robot {
         return robotID; 
     }
 
+    /**
+     * Gets a handle to the robot in its arena, which can be kept across ticks and looked up
+     * with RobotArena.getRobot. Unlike the robot's place in the arena's list, the handle does
+     * not change as other robots are removed, and it stops working once this robot is removed.
+     * 
+     * @return The handle, or -1 while the robot is not in an arena.
+     */
+    public long getHandle() {
+        return inArena() ? store.handleOf(slot) : RobotStore.NO_HANDLE;
+    }
+
+    /**
+     * Checks whether the robot is in an arena, rather than waiting to be added or removed from one.
+     * 
+     * @return True while the robot's state lives in an arena's store.
+     */
+    boolean inArena() {
+        return store != null && !store.loose;
+    }
+
     /**
      * Draws the robot on the given canvas.
      * 
      * @param mc The canvas where the robot will be drawn.
      */
-    public void drawRobot(MyCanvas mc) {
-        mc.showCircle(x, y, rad, col);
+    public void drawRobot(ArenaCanvas mc) {
+        mc.showCircle(getX(), getY(), getRad(), kind().colour());
     }
 
     /**
@@ -92,7 +129,7 @@ public abstract class Robot {
     @Override
     public String toString() {
         return String.format("Robot ID: %d at (%.1f, %.1f), Radius: %.1f, Speed: %.1f, Angle: %.1f",
-                             robotID, x, y, rad, bSpeed, bAngle);
+                             robotID, getX(), getY(), getRad(), getSpeed(), getAngle());
     }
 
     /**
@@ -103,8 +140,8 @@ public abstract class Robot {
      * @return True if the point is within the robot's radius, false otherwise.
      */
     public boolean contains(double mouseX, double mouseY) {
-        double distance = Math.sqrt(Math.pow(this.x - mouseX, 2) + Math.pow(this.y - mouseY, 2));
-        return distance <= this.rad;  // Check if mouse click is within the robot's radius
+        double distance = Math.sqrt(Math.pow(getX() - mouseX, 2) + Math.pow(getY() - mouseY, 2));
+        return distance <= getRad();  // Check if mouse click is within the robot's radius
     }
 
     /**
@@ -115,12 +152,11 @@ public abstract class Robot {
     protected abstract String getStrType();
 
     /**
-     * Abstract method to move the robot based on limits.
+     * Gets the kind of the robot, which decides how the arena's systems treat it.
      * 
-     * @param xLimit The maximum x-coordinate the robot can move.
-     * @param yLimit The maximum y-coordinate the robot can move.
+     * @return The robot's kind.
      */
-    public abstract void move(double xLimit, double yLimit);
+    abstract RobotKind kind();
 
     /**
      * Checks if the robot is colliding with another object based on its position and radius.
@@ -131,7 +167,7 @@ public abstract class Robot {
      * @return True if the robot is colliding with the other object, false otherwise.
      */
     public boolean hitting(double ox, double oy, double or) {
-        return (ox - x) * (ox - x) + (oy - y) * (oy - y) < (or + rad) * (or + rad);
+        return store.hitting(slot, ox, oy, or);
     }
 
     /**
@@ -145,40 +181,98 @@ public abstract class Robot {
     }
 
     /**
-     * Adjusts the robot's position based on its movement and ensures it doesn't leave the arena.
+     * Gets the current angle of the robot.
      * 
-     * @param arena The arena to check for collisions and update the robot's movement.
+     * @return The current angle of the robot in degrees.
      */
-    protected void adjustRobot(RobotArena arena) {
-        // Convert angle to radians
-        double radAngle = Math.toRadians(bAngle);
+    public double getAngle() {
+        return store.angle[slot];
+    }
 
-        // Update position
-        x += bSpeed * Math.cos(radAngle);
-        y += bSpeed * Math.sin(radAngle);
+    /**
+     * Sets the angle of the robot.
+     * 
+     * @param angle The angle to set for the robot.
+     */
+    public void setAngle(double angle) {
+        store.angle[slot] = angle;
+    }
 
-        // Ensure the robot changes direction on collisions
-        bAngle = arena.CheckRobotAngle(x, y, rad, bAngle, robotID); // Use the arena instance
+    /**
+     * Gets the current forward speed of the robot.
+     * 
+     * @return The speed of the robot.
+     */
+    public double getSpeed() {
+        return store.speed[slot];
     }
 
     /**
-     * Gets the current angle of the robot.
+     * Fits the robot with a lidar: a ring of range sensors spread evenly around it, starting
+     * straight ahead, which are scanned once per tick while the robot is in an arena.
      * 
-     * @return The current angle of the robot in degrees.
+     * @param rays The number of rays, from 16 to 64, or 0 to remove the lidar.
+     * @param range How far each ray sees, in pixels.
+     * @throws IllegalArgumentException If the number of rays or the range is out of bounds.
      */
-    public double getAngle() {
-        return bAngle;
+    public void setLidar(int rays, double range) {
+        if (rays != 0 && (rays < RobotStore.MIN_LIDAR_RAYS || rays > RobotStore.MAX_LIDAR_RAYS)) {
+            throw new IllegalArgumentException("a lidar needs " + RobotStore.MIN_LIDAR_RAYS + " to "
+                                               + RobotStore.MAX_LIDAR_RAYS + " rays, not " + rays);
+        }
+        if (!(range > 0)) throw new IllegalArgumentException("lidar range must be positive, not " + range);
+        store.setLidar(slot, rays, range);
     }
 
     /**
-     * Sets the angle of the robot.
+     * Gets the number of rays of the robot's lidar.
      * 
-     * @param angle The angle to set for the robot.
+     * @return The number of rays, or 0 if the robot has no lidar.
      */
-    public void setAngle(double angle) {
-        bAngle = angle;
+    public int getLidarRays() {
+        return store.lidarRays[slot];
+    }
+
+    /**
+     * Gets how far one lidar ray got on the last scan.
+     * Ray 0 points along the robot's heading and the rest follow clockwise on screen.
+     * 
+     * @param ray The index of the ray.
+     * @return The distance to the first thing the ray hit, or the lidar's range if it hit nothing
+     *         or the robot has not been scanned yet.
+     */
+    public double getLidarDistance(int ray) {
+        Objects.checkIndex(ray, getLidarRays());
+        return store.lidar.distance(slot * RobotStore.MAX_LIDAR_RAYS + ray);
     }
-}
 
+    /**
+     * Gets what one lidar ray hit on the last scan.
+     * 
+     * @param ray The index of the ray.
+     * @return The kind of thing hit first.
+     */
+    public RayHits.Kind getLidarHit(int ray) {
+        Objects.checkIndex(ray, getLidarRays());
+        return store.lidar.kind(slot * RobotStore.MAX_LIDAR_RAYS + ray);
+    }
 
+    /**
+     * Makes this robot a view onto a slot of a store.
+     * 
+     * @param s The store now holding the robot's state.
+     * @param i The robot's slot.
+     */
+    void attachTo(RobotStore s, int i) {
+        store = s;
+        slot = i;
+    }
 
+    /**
+     * Cuts the robot off from its store once it has been removed from the arena.
+     */
+    void detach() {
+        store = null;
+        slot = -1;
+    }
+}
@@ -1,16 +1,66 @@
 package application;
 
-import java.awt.Color;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
 
 /**
  * Class representing the arena where robots are placed and interact.
+ * Robot state is kept in a RobotStore and advanced each tick by the movement, teleport,
+ * sensing and kill systems; allRobots lists the matching Robot views in slot order, and the
+ * store only makes a robot's view when it is first asked for.
+ * Removed robots are only marked dead at first, and their slots are freed at the end of the
+ * tick, so slots never move while a tick is running.
  */
 public class RobotArena {
-    private boolean isMaze;
+    /**
+     * Where a tick is run: on the calling thread, or across a fork-join pool.
+     * Both run the same stages against the same snapshot of positions, so they give the same result.
+     */
+    public enum TickMode {
+        SERIAL,
+        PARALLEL
+    }
+
+    boolean isMaze;                  // obstacles are the generated maze
     double xSize, ySize;             // size of arena
-    private ArrayList<Robot> allRobots;   // array list of all robots in arena
+    private final List<Robot> allRobots = new AbstractList<>() {   // allRobots.get(i) is the view of slot i
+        @Override
+        public Robot get(int i) {
+            return store.viewOf(Objects.checkIndex(i, store.size));
+        }
+
+        @Override
+        public int size() {
+            return store.size;
+        }
+    };
+    private final RobotStore store = new RobotStore(64);
+    private final MovementSystem movement = new MovementSystem();
+    private final TeleportSystem teleport = new TeleportSystem();
+    private final SensingSystem sensing = new SensingSystem();
+    private final KillSystem killing = new KillSystem();
+    private final LidarSystem lidar = new LidarSystem();
+    private final IndexList victims = new IndexList();         // robots killed this tick
+    private final IndexList removals = new IndexList();        // dead robots whose slots are still to be freed
+    private boolean ticking;                                   // removals wait for the end of the tick
+    private long killCount;                                    // robots killed since the arena was made
+    private TickMode tickMode = TickMode.SERIAL;
+    private final TickProfiler profiler = new TickProfiler();   // times ticks while switched on
+    private final ArenaMetrics metrics = new ArenaMetrics();    // counts for monitoring, every tick
+    private final ParallelTick tick = new ParallelTick(Runtime.getRuntime().availableProcessors(),
+                                                       movement, teleport, sensing, killing, lidar);
+    private long seed;
+    private SplittableRandom random;                           // for the maze and random obstacles
     private ArrayList<Obstacle> obstacles = new ArrayList<>();
+    private final BroadPhase broadPhase = new BroadPhase();   // robot index, only valid during a tick
+    private final IndexList candidates = new IndexList();      // reused query results
+    private final ObstacleBVH obstacleTree = new ObstacleBVH();
+    private boolean obstaclesChanged = true;                   // obstacleTree must be rebuilt before use
+    private int obstacleVersion;                               // bumped on every change to obstacles
+    private final RayGrid rayGrid = new RayGrid();             // robots and obstacles, for casting rays
 
     /**
      * Constructs a default RobotArena with size 500 x 400.
@@ -28,11 +78,11 @@ public class RobotArena {
     RobotArena(double xS, double yS) {
         xSize = xS;
         ySize = yS;
-        allRobots = new ArrayList<>();
+        setSeed(new SplittableRandom().nextLong());
         // Add some example robots for demonstration
-        allRobots.add(new BasicRobot(xS / 1, yS / 1, 10, 45, 10));
-        allRobots.add(new BasicRobot(xS / 1.5, yS / 1.5, 10, 45, 10));
-        allRobots.add(new AdvancedRobot(1, 1, 10, 45, 10));
+        addRobott(new BasicRobot(xS / 1, yS / 1, 10, 45, 10));
+        addRobott(new BasicRobot(xS / 1.5, yS / 1.5, 10, 45, 10));
+        addRobott(new AdvancedRobot(1, 1, 10, 45, 10));
         this.isMaze = false;
     }
 
@@ -53,13 +103,21 @@ public class RobotArena {
      * Generates a random maze by adding obstacles in the arena.
      */
     private void generateMaze() {
+        SimulationEvents.MazeEvent event = SimulationEvents.MAZE.isEnabled() ? new SimulationEvents.MazeEvent() : null;
+        if (event != null) event.begin();
         obstacles.clear(); // Clear existing obstacles
+        obstacleChanged();
         // Maze generation logic (e.g., DFS or random placement of walls)
         for (int i = 0; i < 20; i++) {  // Example: Add some random obstacles
-            double x = Math.random() * 400;  // Arena width
-            double y = Math.random() * 500;  // Arena height
+            double x = random.nextDouble() * 400;  // Arena width
+            double y = random.nextDouble() * 500;  // Arena height
             obstacles.add(new MazeObstacle(x, y, 10));  // Example obstacle
         }
+        if (event != null) {
+            event.robots = store.size;
+            event.obstacles = obstacles.size();
+            event.commit();
+        }
     }
 
     /**
@@ -67,6 +125,38 @@ public class RobotArena {
      */
     private void clearArena() {
         obstacles.clear();  // Remove all obstacles
+        obstacleChanged();
+    }
+
+    /**
+     * Removes every robot and obstacle from the arena, for example before loading a saved one.
+     */
+    public void clear() {
+        broadPhase.invalidate();
+        removals.clear();
+        store.clear();
+        clearArena();
+    }
+
+    /**
+     * Sets the seed for everything random in the arena: the maze, random obstacles and
+     * every robot's own random stream, which restart from the new seed.
+     * 
+     * @param newSeed The seed.
+     */
+    public void setSeed(long newSeed) {
+        seed = newSeed;
+        random = new SplittableRandom(newSeed);
+        store.reseed(newSeed);
+    }
+
+    /**
+     * Gets the seed the arena's random numbers were started from.
+     * 
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
     }
 
     /**
@@ -88,9 +178,10 @@ public class RobotArena {
     public void addRandomObstacle(double obstacleRadius) {
         // So we don’t place the circle partly outside the arena,
         // we limit random X between [obstacleRadius, xSize - obstacleRadius]
-        double randomX = obstacleRadius + Math.random() * (xSize - 2 * obstacleRadius);
-        double randomY = obstacleRadius + Math.random() * (ySize - 2 * obstacleRadius);
+        double randomX = obstacleRadius + random.nextDouble() * (xSize - 2 * obstacleRadius);
+        double randomY = obstacleRadius + random.nextDouble() * (ySize - 2 * obstacleRadius);
         obstacles.add(new Obstacle(randomX, randomY, obstacleRadius));
+        obstacleChanged();
     }
 
     /**
@@ -116,8 +207,8 @@ public class RobotArena {
      * 
      * @param mc The canvas to draw on.
      */
-    public void drawArena(MyCanvas mc) {
-        mc.drawBorder(xSize, ySize, Color.BLACK, 2.0);
+    public void drawArena(ArenaCanvas mc) {
+        mc.drawBorder(xSize, ySize, 2.0);
 
         for (Robot r : allRobots) {
             r.drawRobot(mc);
@@ -147,25 +238,195 @@ public class RobotArena {
     /**
      * Adjusts all robots by moving them, handling collisions with boundaries,
      * other robots, and obstacles.
+     * Every robot first moves (and may teleport); then, against those positions, it senses,
+     * bounces, kills and turns away from obstacles. See ParallelTick for the stages.
+     * Robots killed or removed during the tick are taken out once all stages have run.
+     * Every tick is counted in the arena's ArenaMetrics.
      */
     public void adjustAllRobots() {
-        for (Robot r : allRobots) {
-            // 1. Move the robot
-            r.move(xSize, ySize);
-
-            // 2. Handle boundary + robot-robot collisions
-            r.adjustRobot(this);
-
-            // 3. NOW check obstacle collisions
-            for (Obstacle obs : obstacles) {
-                if (obs.isColliding(r.getX(), r.getY(), r.getRad())) {
-                    // EXAMPLE REACTION: turn the robot away 120 degrees
-                    // Or pick any logic you want.
-                    double newAngle = r.getAngle() + 120;   
-                    r.setAngle(newAngle);
-                }
+        boolean profiling = profiler.enabled();
+        SimulationEvents.TickEvent event = SimulationEvents.TICK.isEnabled() ? new SimulationEvents.TickEvent() : null;
+        boolean timed = profiling || event != null;
+        if (event != null) event.begin();
+        metrics.startTick();
+        long start = System.nanoTime();
+        victims.clear();
+        store.rememberPositions();
+        ticking = true;
+        try {
+            tick.run(this, store, victims, tickMode == TickMode.PARALLEL, timed, profiler);
+        } finally {
+            ticking = false;
+        }
+
+        long removing = timed ? System.nanoTime() : 0;
+        long killsBefore = killCount;
+        boolean recordKills = SimulationEvents.KILL.isEnabled();
+        broadPhase.invalidate();
+        for (int k = 0; k < victims.size(); k++) {
+            int slot = victims.get(k);
+            if (store.kill(slot)) {     // a robot reached by several killers only counts once
+                killCount++;
+                removals.add(slot);
+                if (recordKills) recordKill(slot);
             }
         }
+        applyRemovals();
+        long end = System.nanoTime();
+        metrics.endTick(end - start, killCount - killsBefore, tick.collisionTests(), tick.sensorTests(),
+                        store, obstacles.size());
+        if (timed) {
+            long[] phases = tick.phaseNanos();
+            phases[TickProfiler.REMOVE] = end - removing;
+            phases[TickProfiler.TICK] = end - start;
+            if (profiling) profiler.recordPhases(phases);
+            if (event != null) {
+                event.end();
+                event.robots = store.size;
+                event.obstacles = obstacles.size();
+                event.kills = (int) (killCount - killsBefore);
+                event.parallel = tickMode == TickMode.PARALLEL;
+                event.setPhases(phases);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Records a robot just killed, before its slot is freed, for the flight recorder.
+     */
+    private void recordKill(int slot) {
+        SimulationEvents.KillEvent kill = new SimulationEvents.KillEvent();
+        kill.robotId = store.id[slot];
+        kill.kind = RobotKind.of(store.kind[slot]).strType();
+        kill.x = store.x[slot];
+        kill.y = store.y[slot];
+        kill.commit();
+    }
+
+    /**
+     * Gets the counters of this arena's health, for monitoring through JMX or a MetricsServer.
+     *
+     * @return The arena's metrics.
+     */
+    public ArenaMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the profiler that times this arena's ticks while it is switched on.
+     *
+     * @return The tick profiler.
+     */
+    TickProfiler profiler() {
+        return profiler;
+    }
+
+    /**
+     * Chooses how future ticks are run.
+     * 
+     * @param mode SERIAL to run on the calling thread, PARALLEL to spread the work across all cores.
+     */
+    public void setTickMode(TickMode mode) {
+        tickMode = mode;
+    }
+
+    /**
+     * Gets how ticks are currently run.
+     * 
+     * @return The current tick mode.
+     */
+    public TickMode getTickMode() {
+        return tickMode;
+    }
+
+    /**
+     * Gets the number of robots killed by KillerRobots so far.
+     * 
+     * @return The number of kills.
+     */
+    public long getKillCount() {
+        return killCount;
+    }
+
+    /**
+     * Counts the robots of one kind in the arena, without looking at the robots.
+     * 
+     * @param kind The kind of robot.
+     * @return The number of robots of that kind.
+     */
+    int getRobotCount(RobotKind kind) {
+        return store.count(kind);
+    }
+
+    /**
+     * Collects the robots of one kind, visiting only those robots.
+     * 
+     * @param kind The kind of robot.
+     * @param out The list the robots are added to, in no particular order.
+     */
+    void getRobots(RobotKind kind, List<? super Robot> out) {
+        IndexList slots = store.slotsOf(kind);
+        for (int k = 0; k < slots.size(); k++) out.add(store.viewOf(slots.get(k)));
+    }
+
+    /**
+     * Stops any worker threads used by the parallel tick.
+     */
+    public void shutdown() {
+        tick.shutdown();
+    }
+
+    /**
+     * Frees the slots of the dead robots, highest slot first so that the slots still to be
+     * freed do not move. Each one is filled by the last robot.
+     */
+    private void applyRemovals() {
+        if (removals.size() == 0) return;
+        broadPhase.invalidate();
+        removals.sort();
+        for (int k = removals.size() - 1; k >= 0; k--) {
+            int slot = removals.get(k);
+            store.remove(slot);
+        }
+        removals.clear();
+    }
+
+    /**
+     * Collects the robots that could be within reach of a point, using the broadphase during a tick.
+     * 
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @param reach The distance to search, not counting the other robots' radii.
+     * @param out The list the candidate slots are appended to.
+     */
+    void robotsNear(double x, double y, double reach, IndexList out) {
+        if (broadPhase.isValid()) {
+            broadPhase.query(x, y, reach, out);
+        } else {
+            for (int i = 0; i < store.size; i++) out.add(i);
+        }
+    }
+
+    /**
+     * Collects the robots whose circles may overlap a circle, running the candidates through the
+     * collision kernel. Like robotsNear this uses the broadphase during a tick; the result can
+     * include a robot that only grazes the circle by a rounding error, so callers still do their own test.
+     * 
+     * @param x The x-coordinate of the circle.
+     * @param y The y-coordinate of the circle.
+     * @param rad The radius of the circle.
+     * @param out The list the slots found are appended to.
+     */
+    void robotsOverlapping(double x, double y, double rad, IndexList out) {
+        if (broadPhase.isValid()) {
+            broadPhase.overlapping(x, y, rad, out);
+        } else {
+            int from = out.size();
+            for (int i = 0; i < store.size; i++) out.add(i);
+            int[] slots = out.array();
+            out.truncate(CollisionKernel.overlapping(store, slots, from, out.size(), x, y, rad, slots));
+        }
     }
 
     /**
@@ -173,7 +434,7 @@ public class RobotArena {
      */
     public void addRobot() {
         // Add another BasicRobot roughly at the center
-        allRobots.add(new BasicRobot(xSize / 2, ySize / 2, 10, 60, 5));
+        addRobott(new BasicRobot(xSize / 2, ySize / 2, 10, 60, 5));
     }
 
     /**
@@ -181,7 +442,7 @@ public class RobotArena {
      */
     public void addAdRobot() {
         // Add another AdvancedRobot roughly at the center
-        allRobots.add(new AdvancedRobot(xSize / 0.5, ySize / 0.5, 10, 60, 5));
+        addRobott(new AdvancedRobot(xSize / 0.5, ySize / 0.5, 10, 60, 5));
     }
 
     /**
@@ -190,7 +451,28 @@ public class RobotArena {
      * @param robot The robot to add.
      */
     public void addRobott(Robot robot) {
-        allRobots.add(robot);
+        if (robot.store == null || robot.inArena()) return;    // removed from an arena, or already in one
+        broadPhase.invalidate();
+        store.add(robot);
+    }
+
+    /**
+     * Adds robots whose state has already been written into the store, as RobotStore.addStored describes.
+     *
+     * @param n The number of robots.
+     */
+    void addStoredRobots(int n) {
+        broadPhase.invalidate();
+        store.addStored(n);
+    }
+
+    /**
+     * Makes room for a number of robots, for example before loading a saved arena.
+     *
+     * @param robots The number of robots the arena should have room for.
+     */
+    void reserve(int robots) {
+        store.reserve(robots);
     }
 
     /**
@@ -201,6 +483,131 @@ public class RobotArena {
     public void addObstacle(Obstacle obstacle) {
         System.out.println(obstacle.getInfo());
         obstacles.add(obstacle);
+        obstacleChanged();
+    }
+
+    /**
+     * Counts the obstacles that a circle is colliding with.
+     *
+     * @param x The x-coordinate of the circle.
+     * @param y The y-coordinate of the circle.
+     * @param rad The radius of the circle.
+     * @return The number of colliding obstacles.
+     */
+    public int countObstacleCollisions(double x, double y, double rad) {
+        return obstacleTree().countColliding(x, y, rad);
+    }
+
+    /**
+     * Checks whether a sensor line crosses any obstacle.
+     *
+     * @param sensor The sensor line.
+     * @return True if the line intersects an obstacle.
+     */
+    public boolean sensorSeesObstacle(Line sensor) {
+        return obstacleTree().intersectsAny(sensor);
+    }
+
+    /**
+     * Checks whether the sensor line from x1,y1 to x2,y2 crosses any obstacle, without needing a Line.
+     *
+     * @param x1 The x-coordinate of the start of the sensor.
+     * @param y1 The y-coordinate of the start of the sensor.
+     * @param x2 The x-coordinate of the end of the sensor.
+     * @param y2 The y-coordinate of the end of the sensor.
+     * @return True if the line intersects an obstacle.
+     */
+    boolean sensorSeesObstacle(double x1, double y1, double x2, double y2) {
+        return obstacleTree().intersectsAny(x1, y1, x2, y2);
+    }
+
+    /**
+     * Gets a number that changes whenever an obstacle is added or removed,
+     * so that copies of the obstacle list know when they are out of date.
+     *
+     * @return The obstacle version.
+     */
+    public int getObstacleVersion() {
+        return obstacleVersion;
+    }
+
+    /**
+     * Marks the obstacles as changed, for the obstacle tree and for copies of the list.
+     */
+    private void obstacleChanged() {
+        obstaclesChanged = true;
+        obstacleVersion++;
+    }
+
+    /**
+     * Gets the store holding the arena's robots.
+     *
+     * @return The robot store.
+     */
+    RobotStore store() {
+        return store;
+    }
+
+    /**
+     * Indexes the robots where they are now and makes sure the obstacle hierarchy is up to date,
+     * so that several threads can then query both. The robot index stays valid until the
+     * end of the tick, or until a robot is added or removed.
+     */
+    void prepareQueries() {
+        broadPhase.rebuild(store, xSize, ySize);
+        obstacleTree();
+        if (store.hasLidar()) rayGrid.build(store, obstacles, xSize, ySize);
+    }
+
+    /**
+     * Casts a batch of rays against the robots, obstacles and walls as they are now.
+     * Each ray stops at the first thing it meets; robots and obstacles that contain the start
+     * of a ray are ignored, so rays cast from a robot's centre do not hit the robot itself.
+     * 
+     * @param x The x-coordinates of the starts of the rays.
+     * @param y The y-coordinates of the starts of the rays.
+     * @param angle The directions of the rays in degrees, measured like robot headings.
+     * @param count The number of rays, which must not exceed the length of the arrays or the capacity of hits.
+     * @param range How far each ray can see.
+     * @param hits The results, where ray k's result is stored at index k.
+     */
+    public void castRays(double[] x, double[] y, double[] angle, int count, double range, RayHits hits) {
+        if (count > hits.capacity()) {
+            throw new IllegalArgumentException("room for " + hits.capacity() + " results, but " + count + " rays");
+        }
+        rayGrid.build(store, obstacles, xSize, ySize);
+        for (int k = 0; k < count; k++) {
+            double a = Math.toRadians(angle[k]);
+            rayGrid.cast(x[k], y[k], Math.cos(a), Math.sin(a), range, hits, k);
+        }
+    }
+
+    /**
+     * Casts one ray through the ray grid built by prepareQueries, for the lidars during a tick.
+     * 
+     * @param x The x-coordinate of the start of the ray.
+     * @param y The y-coordinate of the start of the ray.
+     * @param dx The x-component of the ray's unit direction.
+     * @param dy The y-component of the ray's unit direction.
+     * @param range How far the ray can see.
+     * @param hits The results to write to.
+     * @param k The index in hits to write.
+     */
+    void castRay(double x, double y, double dx, double dy, double range, RayHits hits, int k) {
+        rayGrid.cast(x, y, dx, dy, range, hits, k);
+    }
+
+    /**
+     * Gets the obstacle hierarchy, rebuilding it first if the obstacles have changed.
+     *
+     * @return The up to date obstacle tree.
+     */
+    private ObstacleBVH obstacleTree() {
+        if (obstaclesChanged) {
+            obstacleTree.build(obstacles);
+            obstaclesChanged = false;
+        }
+        return obstacleTree;
     }
 
     /**
@@ -214,6 +621,22 @@ public class RobotArena {
      * @return The adjusted angle.
      */
     public double CheckRobotAngle(double x, double y, double rad, double ang, int robotID) {
+        return checkRobotAngle(x, y, rad, ang, robotID, candidates);
+    }
+
+    /**
+     * Same as CheckRobotAngle, but with a caller-supplied list for the robot query so that
+     * several threads can call it at once during a parallel tick.
+     * 
+     * @param x The x-coordinate of the robot.
+     * @param y The y-coordinate of the robot.
+     * @param rad The radius of the robot.
+     * @param ang The current angle of the robot.
+     * @param robotID The ID of the robot.
+     * @param scratch A list the robot query can use.
+     * @return The adjusted angle.
+     */
+    double checkRobotAngle(double x, double y, double rad, double ang, int robotID, IndexList scratch) {
         double newAngle = ang;
 
         // Check collision with arena boundaries
@@ -224,14 +647,19 @@ public class RobotArena {
             newAngle = -newAngle;      // bounce vertically
         }
 
-        // Check collision with other robots
-        for (Robot r : allRobots) {
-            if (r.getID() != robotID && r.hitting(x, y, rad)) {
-                // Bounce angle points away from other robot’s center
-                newAngle = Math.toDegrees(
-                              Math.atan2(y - r.getY(), x - r.getX())
-                          ) + 180;
-            }
+        // Check collision with other robots; the last one hit in slot order decides the bounce
+        scratch.clear();
+        robotsOverlapping(x, y, rad, scratch);
+        int last = -1;
+        for (int k = 0; k < scratch.size(); k++) {
+            int i = scratch.get(k);
+            if (i > last && store.id[i] != robotID && store.hitting(i, x, y, rad)) last = i;
+        }
+        if (last >= 0) {
+            // Bounce angle points away from other robot’s center
+            newAngle = Math.toDegrees(
+                          Math.atan2(y - store.y[last], x - store.x[last])
+                      ) + 180;
         }
 
         return newAngle;
@@ -244,11 +672,13 @@ public class RobotArena {
      * @return True if a basic robot hits the target, false otherwise.
      */
     public boolean checkHit(Robot target) {
-        boolean ans = false;
-        for (Robot b : allRobots) {
-            if (b instanceof BasicRobot && b.hitting(target)) ans = true;
+        // every kind of robot in the store is a BasicRobot
+        candidates.clear();
+        robotsOverlapping(target.getX(), target.getY(), target.getRad(), candidates);
+        for (int k = 0; k < candidates.size(); k++) {
+            if (store.hitting(candidates.get(k), target.getX(), target.getY(), target.getRad())) return true;
         }
-        return ans;
+        return false;
     }
 
     /**
@@ -256,7 +686,7 @@ public class RobotArena {
      * 
      * @return The list of all robots.
      */
-    public ArrayList<Robot> getAllRobots() {
+    public List<Robot> getAllRobots() {
         return allRobots;
     }
 
@@ -279,13 +709,27 @@ public class RobotArena {
     }
 
     /**
-     * Removes a robot from the arena.
+     * Removes a robot from the arena. Called during a tick, the robot is marked dead at once
+     * but stays in its slot until the tick ends; otherwise it is taken out straight away.
+     * Either way the last robot in the arena takes its place in getAllRobots().
      * 
      * @param robot The robot to remove.
      */
     public void removeRobot(Robot robot) {
-        allRobots.remove(robot);
-        System.out.println("Robot " + robot.getID() + " has been removed from the arena.");
+        if (robot.store != store || !store.kill(robot.slot)) return;
+        removals.add(robot.slot);
+        if (!ticking) applyRemovals();
+    }
+
+    /**
+     * Finds the robot a handle from Robot.getHandle refers to.
+     * 
+     * @param handle The handle.
+     * @return The robot, or null if it has been removed from the arena.
+     */
+    public Robot getRobot(long handle) {
+        int slot = store.slotOf(handle);
+        return slot < 0 ? null : store.viewOf(slot);
     }
 
     /**
@@ -1,9 +1,12 @@
 package application;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 
 import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
@@ -23,6 +26,7 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 /**
@@ -30,11 +34,30 @@ import javafx.stage.Stage;
  * It provides various controls and displays the arena with robots and obstacles.
  */
 public class RobotInterface extends Application {
+	private static final long AUTOSAVE_NANOS = Long.getLong("robotgui.autosaveSeconds", 60) * 1_000_000_000L;
+	private static final String AUTOSAVE_FILE = System.getProperty("robotgui.autosaveFile", "autosave." + Save.SNAPSHOT_EXTENSION);
 	
 	private MyCanvas mc;
-	private AnimationTimer timer; // Timer used for animation
-	private VBox rtPane; // Vertical box for putting info
+	private PixelCanvas pixelCanvas; // draws frames as one image, for very large populations
+	private boolean drawPixels; // true to draw frames through pixelCanvas rather than mc
+	private MyCanvas staticLayer; // the border and obstacles, on a canvas over mc's, redrawn only when they change
+	private Frame drawnFrame; // the frame last drawn on the canvas
+	private int drawnCameraVersion; // the camera version when it was drawn
+	private boolean drawnPixels; // drawPixels when it was drawn
+	private boolean drawnSettled; // true if the robots had stopped between ticks when it was drawn
+	private AnimationTimer timer; // Timer used for drawing
+	private StatusPane statusPane; // robot counts and positions, beside the arena
+	private ProfilerOverlay profilerOverlay; // tick and draw timings, over the arena
 	private RobotArena arena;
+	private SimulationLoop simulation; // Runs the arena on its own thread
+	private final SnapshotWriter snapshots = new SnapshotWriter(); // writes saves and autosaves in the background
+	private Label saveStatus; // how the last save, autosave or load went
+	private boolean autosave; // true while autosave checkpoints are being taken
+	private long nextAutosave; // when the next checkpoint is due, in System.nanoTime()
+	private final ArenaRenderer renderer = new ArenaRenderer();
+	private final DrawBuffer frameBuffer = new DrawBuffer(); // the frame being drawn, batched by colour
+	private Camera camera; // the part of the arena shown on the canvas
+	private double dragX, dragY; // where the last mouse drag event was
 	private UserControlledRobot userControlledRobot;
 	private KillerRobot killerRobot;
 	private ArenaSizeAdjuster sizeAdjuster;
@@ -75,6 +98,8 @@ public class RobotInterface extends Application {
 		mExit.setOnAction(new EventHandler<ActionEvent>() {
 		    public void handle(ActionEvent t) {
 	        	timer.stop();
+	        	simulation.stop();
+	        	snapshots.shutdown(5000);
 		        System.exit(0); 
 		    }
 		});
@@ -111,7 +136,7 @@ public class RobotInterface extends Application {
 	    btnStart.setOnAction(new EventHandler<ActionEvent>() {
 	        @Override
 	        public void handle(ActionEvent event) {
-	        	timer.start();
+	        	simulation.setRunning(true);
 	       }
 	    });
 
@@ -119,7 +144,7 @@ public class RobotInterface extends Application {
 	    btnStop.setOnAction(new EventHandler<ActionEvent>() {
 	        @Override
 	        public void handle(ActionEvent event) {
-	           	timer.stop();
+	           	simulation.setRunning(false);
 	       }
 	    });
 
@@ -127,8 +152,7 @@ public class RobotInterface extends Application {
 	    btnAddOps.setOnAction(new EventHandler<ActionEvent>() {
 	        @Override
 	        public void handle(ActionEvent event) {
-	        	arena.addRandomObstacle(20); // Example coordinates
-	        	drawWorld();
+	        	simulation.submit(a -> a.addRandomObstacle(20)); // Example coordinates
 	       }
 	    });
 
@@ -136,8 +160,7 @@ public class RobotInterface extends Application {
 	    btnAdd.setOnAction(new EventHandler<ActionEvent>() {
 	            @Override
 		        public void handle(ActionEvent event) {
-		           	arena.addAdRobot();
-		           	drawWorld();
+		           	simulation.submit(a -> a.addAdRobot());
 	       }
 	    });
 	    
@@ -145,8 +168,7 @@ public class RobotInterface extends Application {
 	    btnAddR.setOnAction(new EventHandler<ActionEvent>() {
 	    	@Override
 	        public void handle(ActionEvent event) {
-	           	arena.addRobot();
-	           	drawWorld();
+	           	simulation.submit(a -> a.addRobot());
 	       }
 	    });
 
@@ -154,34 +176,51 @@ public class RobotInterface extends Application {
 	    btnSave.setOnAction(new EventHandler<ActionEvent>() {
 	        @Override
 	        public void handle(ActionEvent event) {
-	        	Save s = new Save(arena);
-	        	s.SaveArena();
-	        	System.out.println("Simulation state saved!");
+	        	FileChooser chooser = new FileChooser();
+	        	chooser.setTitle("Save Arena");
+	        	chooser.getExtensionFilters().add(
+	        			new FileChooser.ExtensionFilter("Arena snapshots", "*." + Save.SNAPSHOT_EXTENSION));
+	        	File file = chooser.showSaveDialog(btnSave.getScene().getWindow());
+	        	if (file != null) saveInBackground(file.toPath(), "Saved");
 	       }
 	    });
+
+	    Button btnAutosave = new Button("Autosave: Off");
+	    btnAutosave.setOnAction(new EventHandler<ActionEvent>() {
+	        @Override
+	        public void handle(ActionEvent event) {
+	        	autosave = !autosave;
+	        	nextAutosave = System.nanoTime() + AUTOSAVE_NANOS;
+	        	btnAutosave.setText(autosave ? "Autosave: On" : "Autosave: Off");
+	       }
+	    });
+	    saveStatus = new Label();
 	    
 	    Button btnLoad = new Button("Load");
 	    btnLoad.setOnAction(new EventHandler<ActionEvent>() {
 	        @Override
 	        public void handle(ActionEvent event) {
-	            arena.getAllRobots().clear();
-	            arena.getObstacles().clear();
-
-	            Save s = new Save(arena);
-	            s.loadArena();  
-
-	            System.out.println("=== After Loading ===");
-	            System.out.println("Robots:");
-	            for (Robot r : arena.getAllRobots()) {
-	                System.out.println(r);
-	            }
-	            System.out.println("Obstacles:");
-	            for (Obstacle o : arena.getObstacles()) {
-	                System.out.println(o.getStrType());
-	            }
-
-	            drawWorld(); 
-	            System.out.println("Arena loaded!");
+	        	FileChooser chooser = new FileChooser();
+	        	chooser.setTitle("Load Arena");
+	        	chooser.getExtensionFilters().addAll(
+	        			new FileChooser.ExtensionFilter("Arena snapshots", "*." + Save.SNAPSHOT_EXTENSION),
+	        			new FileChooser.ExtensionFilter("Text files from older versions", "*.txt"));
+	        	File file = chooser.showOpenDialog(btnLoad.getScene().getWindow());
+	        	if (file == null) return;
+	        	saveStatus.setText("Loading " + file.getName() + "...");
+	            simulation.submit(a -> {
+	                String status;
+	                try {
+	                	new Save(a).loadArena(file.getPath());   // leaves the arena as it was if the file is bad
+	                	status = "Loaded " + file.getName() + ": " + a.getAllRobots().size() + " robots, "
+	                	         + a.getObstacles().size() + " obstacles";
+	                } catch (IOException e) {
+	                	e.printStackTrace();
+	                	status = "Load failed, " + e.getMessage();
+	                }
+	                String shown = status;
+	                Platform.runLater(() -> saveStatus.setText(shown));
+	            });
 	        }
 	    });
 
@@ -189,9 +228,9 @@ public class RobotInterface extends Application {
 	    btnUserRobot.setOnAction(new EventHandler<ActionEvent>() {
 	        @Override
 	        public void handle(ActionEvent event) {
-	        	 userControlledRobot = new UserControlledRobot(100, 100, 10, 1, 1);
-	        	 arena.addRobott(userControlledRobot);
-	             drawWorld();
+	        	 UserControlledRobot robot = new UserControlledRobot(100, 100, 10, 1, 1);
+	        	 userControlledRobot = robot;
+	        	 simulation.submit(a -> a.addRobott(robot));
 	       }
 	    });
 	  
@@ -199,8 +238,7 @@ public class RobotInterface extends Application {
 	    btnToggleMaze.setOnAction(new EventHandler<ActionEvent>() {
 	        @Override
 	        public void handle(ActionEvent event) {
-	            arena.toggleArena();
-	            drawWorld();
+	            simulation.submit(a -> a.toggleArena());
 	        }
 	    });
 	    
@@ -208,9 +246,9 @@ public class RobotInterface extends Application {
 	    btnKillerRobot.setOnAction(new EventHandler<ActionEvent>() {
 	        @Override
 	        public void handle(ActionEvent event) {
-	        	killerRobot = new KillerRobot(100, 106, 12, 10, 1);
-	        	 arena.addRobott(killerRobot);
-	             drawWorld();
+	        	KillerRobot robot = new KillerRobot(100, 106, 12, 10, 1);
+	        	killerRobot = robot;
+	        	simulation.submit(a -> a.addRobott(robot));
 	        }
 	    });
 	    
@@ -219,8 +257,7 @@ public class RobotInterface extends Application {
 	        @Override
 	        public void handle(ActionEvent event) {
 	            TeleportingRobot teleportingRobot = new TeleportingRobot(100, 100, 10, 0, 1);
-	            arena.addRobott(teleportingRobot);
-	            drawWorld();
+	            simulation.submit(a -> a.addRobott(teleportingRobot));
 	        }
 	    });
 
@@ -238,8 +275,7 @@ public class RobotInterface extends Application {
 	                double newWidth = Double.parseDouble(widthField.getText());
 	                double newHeight = Double.parseDouble(heightField.getText());
 
-	                arena.setArenaSize(newWidth, newHeight);
-	                drawWorld();
+	                simulation.submit(a -> a.setArenaSize(newWidth, newHeight));
 	                System.out.println("Arena resized to: " + newWidth + " x " + newHeight);
 	            } catch (NumberFormatException e) {
 	                System.out.println("Please enter valid numerical values for width and height.");
@@ -249,12 +285,33 @@ public class RobotInterface extends Application {
 
 	    HBox resizeControls = new HBox(5, widthField, heightField, btnResizeArena);
 	  
+	    Button btnRenderer = new Button("Renderer: Canvas");
+	    btnRenderer.setOnAction(new EventHandler<ActionEvent>() {
+	        @Override
+	        public void handle(ActionEvent event) {
+	            drawPixels = !drawPixels;
+	            btnRenderer.setText(drawPixels ? "Renderer: Pixels" : "Renderer: Canvas");
+	        }
+	    });
+
+	    Button btnProfiler = new Button("Profiler");
+	    btnProfiler.setOnAction(new EventHandler<ActionEvent>() {
+	        @Override
+	        public void handle(ActionEvent event) {
+	            boolean on = !profilerOverlay.isOn();
+	            profilerOverlay.setOn(on);
+	            simulation.submit(a -> a.profiler().setEnabled(on));
+	        }
+	    });
+
 	    HBox rowRun = new HBox(5, 
 		        new Label("Run: "), 
 		        btnStart, 
 		        btnStop,
 		        btnToggleMaze,
-		        btnAddTeleportingRobot
+		        btnAddTeleportingRobot,
+		        btnRenderer,
+		        btnProfiler
 		    );
 	    HBox rowArena = new HBox(5, 
 		        new Label("Change: "), 
@@ -268,8 +325,10 @@ public class RobotInterface extends Application {
 		        btnAddOps,
 		        btnSave, 
 		        btnLoad, 
+		        btnAutosave,
 		        btnKillerRobot,
-		        btnUserRobot
+		        btnUserRobot,
+		        saveStatus
 		    );
 		    
 		    VBox vbox = new VBox(10, rowArena, rowRun, rowAdd);
@@ -279,6 +338,44 @@ public class RobotInterface extends Application {
 	}
 	
 
+	/**
+	 * Saves the arena without holding up the simulation: the simulation thread copies the arena's
+	 * state at the next tick boundary and hands it to the snapshot writer, and the outcome is shown
+	 * beside the buttons once the file is on disk.
+	 * @param file The file to write.
+	 * @param what What the save is called in the status, such as "Saved" or "Autosaved".
+	 */
+	private void saveInBackground(Path file, String what) {
+		saveStatus.setText(what + ": writing " + file.getFileName() + "...");
+		simulation.submit(a -> snapshots.save(a, file).whenComplete((result, failure) ->
+				Platform.runLater(() -> showSaved(what, file, result, failure))));
+	}
+
+	/**
+	 * Shows how a background save went. FX thread only.
+	 */
+	private void showSaved(String what, Path file, SnapshotWriter.Result result, Throwable failure) {
+		if (failure != null) {
+			Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+			saveStatus.setText(what + ": failed, " + cause.getMessage());
+			failure.printStackTrace();
+		} else {
+			saveStatus.setText(String.format("%s %s: %d robots in %.0f ms", what, file.getFileName(),
+			                                 result.robots, result.nanos / 1e6));
+		}
+	}
+
+	/**
+	 * Takes an autosave checkpoint if autosave is on and one is due, unless the last save is
+	 * still being written.
+	 * @param now The current System.nanoTime().
+	 */
+	private void autosaveIfDue(long now) {
+		if (!autosave || now - nextAutosave < 0) return;
+		nextAutosave = now + AUTOSAVE_NANOS;
+		if (!snapshots.busy()) saveInBackground(Path.of(AUTOSAVE_FILE), "Autosaved");
+	}
+
 	/**
 	 * Displays the current score at a specified position.
 	 * @param x The x-coordinate of the position.
@@ -290,25 +387,54 @@ public class RobotInterface extends Application {
 	}
 
 	/** 
-	 * Redraws the world on the canvas.
+	 * Redraws the world on the canvas from the latest frame of the simulation.
 	 */
 	public void drawWorld () {
-	 	mc.clearCanvas();
-	 	arena.drawArena(mc);
+		drawnFrame = null;
+		drawChanges(System.nanoTime());
 	}
-	
+
 	/**
-	 * Displays the status of the robots and obstacles in the arena.
+	 * Draws whatever has changed since the last call: the border and obstacles only when they,
+	 * the arena size or the camera have changed, and the robots only when there is a new frame,
+	 * the camera or renderer has changed, or they are still moving between ticks.
+	 * While paused with nothing changing, nothing is drawn at all.
+	 * Each step is timed for the profiler overlay while it is on.
+	 * @param now The current System.nanoTime().
 	 */
-	public void drawStatus() {
-		rtPane.getChildren().clear();
-		ArrayList<String> allBs = arena.describeAll();
-		for (String s : allBs) {
-			Label l = new Label(s);
-			rtPane.getChildren().add(l);
-		}	
+	private void drawChanges(long now) {
+		Frame f = simulation.latestFrame();
+		long t = profilerOverlay.isOn() ? System.nanoTime() : 0;
+		statusPane.update(f, now);
+		t = profilerOverlay.lap(ProfilerOverlay.STATUS, t);
+		if (renderer.staticChanged(f, camera)) {
+			renderer.drawStatic(staticLayer, f, camera);
+			t = profilerOverlay.lap(ProfilerOverlay.STATIC, t);
+		}
+		if (f != drawnFrame || camera.version() != drawnCameraVersion || drawPixels != drawnPixels || !drawnSettled) {
+			renderer.drawDynamic(frameBuffer, f, now, camera);
+			t = profilerOverlay.lap(ProfilerOverlay.RECORD, t);
+			showFrame();
+			profilerOverlay.lap(ProfilerOverlay.SHOW, t);
+			drawnFrame = f;
+			drawnCameraVersion = camera.version();
+			drawnPixels = drawPixels;
+			drawnSettled = !ArenaRenderer.interpolating(f, now);
+		}
+		profilerOverlay.update(f, now);
 	}
 
+	/**
+	 * Draws the recorded frame on the canvas with the renderer chosen by the user.
+	 */
+	private void showFrame() {
+		if (drawPixels) {
+			pixelCanvas.draw(frameBuffer);
+		} else {
+			mc.draw(frameBuffer);
+		}
+	}
+	
 	@Override
 	public void start(Stage primaryStage) throws Exception {
 	    primaryStage.setTitle("Akin Robot GUI");
@@ -319,34 +445,67 @@ public class RobotInterface extends Application {
 
 	    Group root = new Group();
 	    Canvas canvas = new Canvas(400, 500);
-	    root.getChildren().add(canvas);
+	    Canvas staticCanvas = new Canvas(canvas.getWidth(), canvas.getHeight());
+	    staticCanvas.setMouseTransparent(true); // the mouse still reaches the arena underneath
+	    Canvas profilerCanvas = new Canvas(canvas.getWidth(), canvas.getHeight());
+	    profilerCanvas.setMouseTransparent(true);
+	    root.getChildren().addAll(canvas, staticCanvas, profilerCanvas);
+	    profilerOverlay = new ProfilerOverlay(profilerCanvas);
 	    bp.setLeft(root);
 
-	    mc = new MyCanvas(canvas.getGraphicsContext2D(), 600, 500);
+	    mc = new MyCanvas(canvas.getGraphicsContext2D(), (int) canvas.getWidth(), (int) canvas.getHeight());
+	    staticLayer = new MyCanvas(staticCanvas.getGraphicsContext2D(), (int) canvas.getWidth(), (int) canvas.getHeight());
+	    pixelCanvas = new PixelCanvas(canvas.getGraphicsContext2D(), (int) canvas.getWidth(), (int) canvas.getHeight());
+	    camera = new Camera(canvas.getWidth(), canvas.getHeight());
+
+	    // drag to pan, scroll to zoom about the mouse, double-click to see the whole arena
+	    canvas.setOnMousePressed(e -> {
+	        dragX = e.getX();
+	        dragY = e.getY();
+	        if (e.getClickCount() == 2) {
+	            Frame f = simulation.latestFrame();
+	            camera.fit(f.xSize, f.ySize);
+	        }
+	    });
+	    canvas.setOnMouseDragged(e -> {
+	        camera.pan(e.getX() - dragX, e.getY() - dragY);
+	        dragX = e.getX();
+	        dragY = e.getY();
+	    });
+	    canvas.setOnScroll(e -> camera.zoomAt(e.getDeltaY() > 0 ? 1.25 : 0.8, e.getX(), e.getY()));
+
+	    arena = new RobotArena(400, 500);
+	    simulation = new SimulationLoop(arena);
+	    simulation.setFailureHandler(e -> {
+	    	e.printStackTrace();
+	    	Platform.runLater(() -> saveStatus.setText("Command failed: " + e));
+	    });
+	    simulation.start();
 
+	    // The FX thread only draws; the arena is ticked by the simulation thread
 	    timer = new AnimationTimer() {
 	        public void handle(long currentNanoTime) {
-	            arena.adjustAllRobots();
-	            drawWorld();
-	            drawStatus();
+	            drawChanges(currentNanoTime);
+	            autosaveIfDue(currentNanoTime);
 	        }
 	    };
 	    timer.start();
-	    arena = new RobotArena(400, 500);
-	    drawWorld();
 
-	    rtPane = new VBox();
-	    rtPane.setAlignment(Pos.TOP_LEFT);
-	    rtPane.setPadding(new Insets(5, 75, 75, 5));
-	    bp.setRight(rtPane);
+	    statusPane = new StatusPane();
+	    statusPane.setAlignment(Pos.TOP_LEFT);
+	    statusPane.setPadding(new Insets(5, 75, 75, 5));
+	    bp.setRight(statusPane);
 
 	    Scene scene = new Scene(bp, 700, 600);
 	    bp.prefHeightProperty().bind(scene.heightProperty());
 	    bp.prefWidthProperty().bind(scene.widthProperty());
 
 	    scene.setOnKeyPressed(event -> {
-	        if (userControlledRobot != null) {
-	            userControlledRobot.direction(event.getText());
+	        UserControlledRobot robot = userControlledRobot;
+	        if (robot != null) {
+	            String key = event.getText();
+	            // once killed, or cleared by a load, the robot is no longer in the arena to steer
+	            simulation.submit(a -> { if (robot.inArena()) robot.direction(key); });
 	        }
 	    });
 
@@ -354,6 +513,13 @@ public class RobotInterface extends Application {
 	    primaryStage.show();
 	}
 
+	@Override
+	public void stop() {
+		simulation.stop();
+		pixelCanvas.shutdown();
+		snapshots.shutdown(5000); // let a save in progress reach the disk
+	}
+
 	public static void main(String[] args) {
 	    Application.launch(args);
 	}
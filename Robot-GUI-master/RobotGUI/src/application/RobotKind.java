@@ -0,0 +1,68 @@
+package application;
+
+/**
+ * The kinds of robot that can live in an arena.
+ * The kind decides which systems act on a robot each tick and how it is drawn.
+ */
+enum RobotKind {
+    BASIC('r', "BasicRobot"),
+    ADVANCED('g', "AdvancedRobot"),
+    KILLER('b', "KillerRobot"),
+    TELEPORTING('o', "TeleportingRobot"),
+    USER_CONTROLLED('y', "UserControlledRobot");
+
+    private static final RobotKind[] ALL = values();
+
+    private final char col;
+    private final String strType;
+
+    RobotKind(char col, String strType) {
+        this.col = col;
+        this.strType = strType;
+    }
+
+    /**
+     * Gets the colour the robot's body is drawn in.
+     *
+     * @return The colour character understood by ArenaCanvas.
+     */
+    char colour() {
+        return col;
+    }
+
+    /**
+     * Gets the name of the robot type.
+     *
+     * @return The type name, for example "BasicRobot".
+     */
+    String strType() {
+        return strType;
+    }
+
+    /**
+     * Looks up a kind from the byte stored in a RobotStore.
+     *
+     * @param ordinal The stored ordinal.
+     * @return The matching kind.
+     */
+    static RobotKind of(byte ordinal) {
+        return ALL[ordinal];
+    }
+
+    /**
+     * Makes a view of this kind onto a robot whose state is already in a slot of a store.
+     *
+     * @param s The store holding the robot.
+     * @param i The robot's slot.
+     * @return The view, which takes the robot's ID from the store.
+     */
+    Robot view(RobotStore s, int i) {
+        switch (this) {
+            case ADVANCED:        return new AdvancedRobot(s, i);
+            case KILLER:          return new KillerRobot(s, i);
+            case TELEPORTING:     return new TeleportingRobot(s, i);
+            case USER_CONTROLLED: return new UserControlledRobot(s, i);
+            default:              return new BasicRobot(s, i);
+        }
+    }
+}
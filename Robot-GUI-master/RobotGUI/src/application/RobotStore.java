@@ -0,0 +1,568 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Dense, structure-of-arrays storage for every robot in an arena.
+ * Each component is a primitive array indexed by slot, and slots 0..size-1 are always in use,
+ * so the tick systems can sweep the arrays from start to end.
+ * The Robot objects used by the GUI and Save are thin views onto one slot each, made the first
+ * time a robot is asked for, so robots that nobody looks at have no object at all.
+ * <p>
+ * Removing a robot moves the last robot into its slot, so slots are not stable.
+ * Code that has to hold on to a robot keeps its handle instead. A handle is an index into a handle
+ * table plus that index's generation; the generation is bumped when the robot is removed, so a
+ * handle to a removed robot never finds the robot that later reuses the index.
+ * <p>
+ * The slots of each kind of robot are also kept in a list of their own, so that code which only
+ * deals with one kind visits just those robots. The lists are in no particular order.
+ */
+final class RobotStore {
+    /** Length of each sensor line in pixels. */
+    static final double SENSOR_LENGTH = 40;
+    /** Angle in degrees between the heading and each sensor line. */
+    static final double SENSOR_SPREAD = 30;
+
+    /** Flag set while the left sensor is triggered. */
+    static final byte LEFT_SENSOR = 1;
+    /** Flag set while the right sensor is triggered. */
+    static final byte RIGHT_SENSOR = 2;
+
+    /** Fewest rays a lidar can have. */
+    static final int MIN_LIDAR_RAYS = 16;
+    /** Most rays a lidar can have; each slot has this many entries in lidar. */
+    static final int MAX_LIDAR_RAYS = 64;
+
+    /** A handle that never refers to a robot. */
+    static final long NO_HANDLE = -1;
+
+    /** Value of direction[] for robots that are not steered by the user. */
+    static final byte NO_DIRECTION = -1;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    final boolean loose;            // true for the one-robot store of a robot outside any arena
+    int size;
+    long seed;                      // arena seed that every robot's random stream is split from
+
+    // position, heading and body
+    double[] x, y, rad;
+    double[] angle;                 // heading in degrees
+    double[] speed;                 // forward speed
+    double[] prevX, prevY;          // position at the start of the last tick, for drawing in between
+
+    // wheels
+    double[] leftWheel, rightWheel;
+
+    // sensor line end points; each line starts at the robot's centre
+    double[] leftSensorX, leftSensorY, rightSensorX, rightSensorY;
+
+    byte[] kind;                    // RobotKind ordinal
+    byte[] flags;                   // sensor flags
+    byte[] direction;               // UserControlledRobot.Direction ordinal, or NO_DIRECTION
+    long[] random;                  // state of each robot's random stream
+    byte[] lidarRays;               // rays of each robot's lidar, 0 if it has none
+    double[] lidarRange;            // how far each robot's lidar sees
+    RayHits lidar;                  // last lidar scan, MAX_LIDAR_RAYS entries per slot; null until needed
+    boolean[] dead;                 // set once a robot is queued for removal, until its slot is freed
+    int[] id;
+    int[] handle;                   // index in the handle table of each slot's robot
+    int[] kindPos;                  // position of each slot in the list of its kind
+    Robot[] view;                   // view of each slot, null until viewOf makes it
+
+    private final IndexList[] byKind = new IndexList[RobotKind.values().length];  // slots of each kind
+    private boolean kindsShuffled;  // a removal has put some list of byKind out of slot order
+
+    // handle table, indexed by the low half of a handle
+    private int[] handleSlot = new int[0];          // slot of the robot holding each index, -1 while free
+    private int[] handleGeneration = new int[0];    // the high half of the index's current handle
+    private int handles;                            // indices handed out so far
+    private final IndexList freeHandles = new IndexList();
+
+    /**
+     * Constructs an empty store.
+     *
+     * @param capacity The number of robots to make room for up front.
+     */
+    RobotStore(int capacity) {
+        this(Math.max(capacity, 8), false);
+    }
+
+    private RobotStore(int capacity, boolean loose) {
+        this.loose = loose;
+        allocate(capacity);
+        for (int k = 0; k < byKind.length; k++) byKind[k] = loose ? new IndexList(1) : new IndexList();
+    }
+
+    /**
+     * Constructs a store for one robot that is not in an arena yet, which keeps the robot's
+     * state in slot 0 until an arena's store copies it in with add. The robot has no handle,
+     * and the tick systems never see it, so its sensor lines and flags stay at zero.
+     *
+     * @param k The kind of the robot.
+     * @param robotID The robot's ID.
+     * @return The store, with every other component at zero and no steering.
+     */
+    static RobotStore loose(RobotKind k, int robotID) {
+        RobotStore s = new RobotStore(1, true);
+        s.size = 1;
+        s.kind[0] = (byte) k.ordinal();
+        s.direction[0] = NO_DIRECTION;
+        s.id[0] = robotID;
+        return s;
+    }
+
+    /**
+     * Copies a robot's state from the store of its own into a new slot at the end of this store.
+     *
+     * @param r The robot view to add, which must not be in an arena.
+     * @return The slot the robot was stored in.
+     */
+    int add(Robot r) {
+        if (size == x.length) allocate(size * 2);
+        int i = size;
+        RobotStore from = r.store;
+        int j = r.slot;
+        x[i] = from.x[j]; y[i] = from.y[j]; rad[i] = from.rad[j];
+        angle[i] = from.angle[j]; speed[i] = from.speed[j];
+        leftWheel[i] = from.leftWheel[j]; rightWheel[i] = from.rightWheel[j];
+        kind[i] = from.kind[j]; direction[i] = from.direction[j];
+        lidarRays[i] = from.lidarRays[j]; lidarRange[i] = from.lidarRange[j];
+        id[i] = from.id[j];
+        flags[i] = 0;
+        random[i] = streamFor(seed, id[i]);
+        return addStored(r);
+    }
+
+    /**
+     * Takes in robots whose state has already been written into the arrays from slot size on,
+     * as when a snapshot is loaded straight into the store. Their views are made later, by viewOf.
+     * Only the position, body, heading, speed, wheels, kind, flags, steering, ID, random stream
+     * and lidar settings need to be there; the rest is worked out here.
+     *
+     * @param n The number of robots.
+     */
+    void addStored(int n) {
+        reserve(size + n);
+        int from = size, to = size + n;
+        for (int i = from; i < to; i++) {
+            handle[i] = newHandle(i);
+            IndexList same = byKind[kind[i]];
+            kindPos[i] = same.size();
+            same.add(i);
+            setLidar(i, lidarRays[i], lidarRange[i]);
+            updateSensorLines(i);
+        }
+        Arrays.fill(dead, from, to, false);
+        Arrays.fill(view, from, to, null);
+        System.arraycopy(x, from, prevX, from, n);
+        System.arraycopy(y, from, prevY, from, n);
+        size = to;
+    }
+
+    /**
+     * Takes in a robot whose state add has already written into the arrays at slot size, the
+     * first free slot, and works out the rest of its components.
+     *
+     * @param r The robot's view, whose ID must match the stored one.
+     * @return The slot the robot was stored in.
+     */
+    private int addStored(Robot r) {
+        if (size == x.length) allocate(size * 2);
+        int i = size++;
+        dead[i] = false;
+        handle[i] = newHandle(i);
+        IndexList same = byKind[kind[i]];
+        kindPos[i] = same.size();
+        same.add(i);
+        view[i] = r;
+        r.attachTo(this, i);
+        prevX[i] = x[i];
+        prevY[i] = y[i];
+        setLidar(i, lidarRays[i], lidarRange[i]);
+        updateSensorLines(i);
+        return i;
+    }
+
+    /**
+     * Gets the view of the robot in a slot, making it if nobody has asked for it before.
+     *
+     * @param i The slot of the robot.
+     * @return The robot's view, the same object every time while the robot is in the store.
+     */
+    Robot viewOf(int i) {
+        Robot r = view[i];
+        if (r == null) view[i] = r = RobotKind.of(kind[i]).view(this, i);
+        return r;
+    }
+
+    /**
+     * Marks a robot as dead: its handle stops working at once, but it keeps its slot
+     * until remove is called, so the slots of other robots do not change in the meantime.
+     *
+     * @param i The slot of the robot.
+     * @return False if the robot was already dead.
+     */
+    boolean kill(int i) {
+        if (dead[i]) return false;
+        dead[i] = true;
+        handleGeneration[handle[i]]++;
+        return true;
+    }
+
+    /**
+     * Removes the robot in a slot by moving the last robot into it.
+     * To remove several robots, remove them highest slot first so the others do not move.
+     *
+     * @param i The slot to remove.
+     */
+    void remove(int i) {
+        if (view[i] != null) view[i].detach();
+        kill(i);
+        handleSlot[handle[i]] = -1;
+        freeHandles.add(handle[i]);
+        int moved = byKind[kind[i]].swapRemove(kindPos[i]);
+        if (moved >= 0) kindPos[moved] = kindPos[i];
+        int last = --size;
+        if (i != last) move(last, i);
+        kindsShuffled = true;
+        view[last] = null;
+    }
+
+    /**
+     * Gets the slots of every robot of one kind.
+     *
+     * @param k The kind.
+     * @return The slots, in no particular order; not to be changed by the caller.
+     */
+    IndexList slotsOf(RobotKind k) {
+        return byKind[k.ordinal()];
+    }
+
+    /**
+     * Counts the robots of one kind.
+     *
+     * @param k The kind.
+     * @return The number of robots of that kind.
+     */
+    int count(RobotKind k) {
+        return byKind[k.ordinal()].size();
+    }
+
+    /**
+     * Lists every slot grouped by kind, in RobotKind order and in slot order within each kind,
+     * so that a loop over one kind's group reads the arrays from front to back.
+     * After robots have been removed, the kind lists are first rebuilt in slot order.
+     *
+     * @param order Receives the slots; must have room for size entries.
+     * @param kindStart Receives the position in order where each kind's group starts, indexed by
+     *                  RobotKind ordinal, followed by size; must have room for one more than the kinds.
+     */
+    void groupByKind(int[] order, int[] kindStart) {
+        if (kindsShuffled) {
+            // one pass over the slots is cheaper than sorting, and does not allocate
+            for (IndexList same : byKind) same.clear();
+            for (int i = 0; i < size; i++) {
+                IndexList same = byKind[kind[i]];
+                kindPos[i] = same.size();
+                same.add(i);
+            }
+            kindsShuffled = false;
+        }
+        int n = 0;
+        for (int k = 0; k < byKind.length; k++) {
+            IndexList same = byKind[k];
+            kindStart[k] = n;
+            System.arraycopy(same.array(), 0, order, n, same.size());
+            n += same.size();
+        }
+        kindStart[byKind.length] = n;
+    }
+
+    /**
+     * Gets the current handle of the robot in a slot.
+     *
+     * @param i The slot of the robot.
+     * @return The handle, which stays valid until the robot is removed.
+     */
+    long handleOf(int i) {
+        int h = handle[i];
+        return (long) handleGeneration[h] << 32 | h;
+    }
+
+    /**
+     * Looks up the slot of the robot a handle refers to.
+     *
+     * @param h The handle.
+     * @return The robot's slot, or -1 if the robot has been removed or queued for removal.
+     */
+    int slotOf(long h) {
+        int index = (int) h;
+        if (h < 0 || index >= handles || handleGeneration[index] != (int) (h >>> 32)) return -1;
+        return handleSlot[index];
+    }
+
+    /**
+     * Records every robot's position as its position at the start of a tick.
+     */
+    void rememberPositions() {
+        System.arraycopy(x, 0, prevX, 0, size);
+        System.arraycopy(y, 0, prevY, 0, size);
+    }
+
+    /**
+     * Restarts every robot's random stream from a new arena seed.
+     *
+     * @param newSeed The arena seed.
+     */
+    void reseed(long newSeed) {
+        seed = newSeed;
+        for (int i = 0; i < size; i++) random[i] = streamFor(seed, id[i]);
+    }
+
+    /**
+     * Draws the next number from a robot's own random stream.
+     * Each robot's stream only depends on the arena seed, its ID and how many numbers it has
+     * drawn, so the result does not depend on which thread runs the robot or in what order.
+     * The generator is the SplitMix64 one behind java.util.SplittableRandom, kept as one long
+     * per slot instead of an object per robot.
+     *
+     * @param i The slot of the robot.
+     * @return A number in [0, 1).
+     */
+    double nextDouble(int i) {
+        long z = mix64(random[i] += GOLDEN_GAMMA);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Gives a robot a lidar, or takes it away, and clears the robot's last scan.
+     *
+     * @param i The slot of the robot.
+     * @param rays The number of rays, or 0 for no lidar.
+     * @param range How far the lidar sees.
+     */
+    void setLidar(int i, int rays, double range) {
+        lidarRays[i] = (byte) rays;
+        lidarRange[i] = range;
+        if (rays == 0 && lidar == null) return;
+        if (lidar == null) lidar = new RayHits(capacity() * MAX_LIDAR_RAYS);
+        for (int r = 0; r < MAX_LIDAR_RAYS; r++) {
+            lidar.set(i * MAX_LIDAR_RAYS + r, range, RayHits.Kind.NONE, -1);
+        }
+    }
+
+    /**
+     * Checks whether any robot has been given a lidar, so that the ray grid is needed.
+     *
+     * @return True once a lidar has been fitted to any robot in this store.
+     */
+    boolean hasLidar() {
+        return lidar != null;
+    }
+
+    /**
+     * Gets the number of robots the arrays have room for.
+     *
+     * @return The capacity of the store.
+     */
+    int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Makes room for a number of robots at once, so that adding them does not grow the arrays
+     * step by step.
+     *
+     * @param capacity The number of robots to make room for.
+     */
+    void reserve(int capacity) {
+        if (capacity > x.length) allocate(capacity);
+    }
+
+    /**
+     * Swaps the position, heading and sensor flag arrays with the output of a parallel tick.
+     * The store's old arrays go to next, to be reused on the following tick.
+     *
+     * @param next The parallel tick's output arrays, which must match the store's capacity.
+     */
+    void swapMotion(ParallelTick.Next next) {
+        double[] d;
+        d = x;     x = next.x;         next.x = d;
+        d = y;     y = next.y;         next.y = d;
+        d = angle; angle = next.angle; next.angle = d;
+        byte[] b = flags;
+        flags = next.flags;
+        next.flags = b;
+    }
+
+    /**
+     * Removes every robot.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            if (view[i] != null) view[i].detach();
+            kill(i);
+            handleSlot[handle[i]] = -1;
+            freeHandles.add(handle[i]);
+        }
+        Arrays.fill(view, 0, size, null);
+        for (IndexList same : byKind) same.clear();
+        size = 0;
+    }
+
+    /**
+     * Recalculates both sensor lines of a robot from its position and heading.
+     *
+     * @param i The slot of the robot.
+     */
+    void updateSensorLines(int i) {
+        double leftAngleRad = Math.toRadians(angle[i] - SENSOR_SPREAD);
+        leftSensorX[i] = x[i] + SENSOR_LENGTH * Math.cos(leftAngleRad);
+        leftSensorY[i] = y[i] + SENSOR_LENGTH * Math.sin(leftAngleRad);
+
+        double rightAngleRad = Math.toRadians(angle[i] + SENSOR_SPREAD);
+        rightSensorX[i] = x[i] + SENSOR_LENGTH * Math.cos(rightAngleRad);
+        rightSensorY[i] = y[i] + SENSOR_LENGTH * Math.sin(rightAngleRad);
+    }
+
+    /**
+     * Keeps a robot within the arena boundaries.
+     *
+     * @param i The slot of the robot.
+     * @param xLimit The width of the arena.
+     * @param yLimit The height of the arena.
+     */
+    void clampPosition(int i, double xLimit, double yLimit) {
+        double r = rad[i];
+        if (x[i] - r < 0)       x[i] = r;
+        if (x[i] + r > xLimit)  x[i] = xLimit - r;
+        if (y[i] - r < 0)       y[i] = r;
+        if (y[i] + r > yLimit)  y[i] = yLimit - r;
+    }
+
+    /**
+     * Checks if a robot is colliding with a circle. This is the one definition of the test, used by
+     * the robot's view and by KillSystem; killers keep the sqrt-based test they always had.
+     *
+     * @param i The slot of the robot.
+     * @param ox The x-coordinate of the circle.
+     * @param oy The y-coordinate of the circle.
+     * @param or The radius of the circle.
+     * @return True if they overlap.
+     */
+    boolean hitting(int i, double ox, double oy, double or) {
+        if (kind[i] == RobotKind.KILLER.ordinal()) {
+            double distance = Math.sqrt(Math.pow(x[i] - ox, 2) + Math.pow(y[i] - oy, 2));
+            return distance < (rad[i] + or);
+        }
+        return (ox - x[i]) * (ox - x[i]) + (oy - y[i]) * (oy - y[i]) < (or + rad[i]) * (or + rad[i]);
+    }
+
+    /**
+     * Gets the kind of the robot in a slot.
+     *
+     * @param i The slot.
+     * @return The robot's kind.
+     */
+    RobotKind kindOf(int i) {
+        return RobotKind.of(kind[i]);
+    }
+
+    /**
+     * Works out the starting state of a robot's random stream.
+     */
+    private static long streamFor(long seed, int robotID) {
+        return mix64(seed + mix64(robotID * GOLDEN_GAMMA));
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Hands out a handle table index for a robot, reusing a freed one if there is one.
+     */
+    private int newHandle(int slot) {
+        int h;
+        if (freeHandles.size() > 0) {
+            h = freeHandles.get(freeHandles.size() - 1);
+            freeHandles.truncate(freeHandles.size() - 1);
+        } else {
+            if (handles == handleSlot.length) {
+                handleSlot = Arrays.copyOf(handleSlot, Math.max(handles * 2, 8));
+                handleGeneration = Arrays.copyOf(handleGeneration, handleSlot.length);
+                freeHandles.ensureCapacity(handleSlot.length);   // so that remove never has to grow it
+            }
+            h = handles++;
+        }
+        handleSlot[h] = slot;
+        return h;
+    }
+
+    /**
+     * Moves every component of a robot to another slot, overwriting the robot there.
+     */
+    private void move(int from, int to) {
+        x[to] = x[from]; y[to] = y[from]; rad[to] = rad[from];
+        angle[to] = angle[from]; speed[to] = speed[from];
+        prevX[to] = prevX[from]; prevY[to] = prevY[from];
+        leftWheel[to] = leftWheel[from]; rightWheel[to] = rightWheel[from];
+        leftSensorX[to] = leftSensorX[from]; leftSensorY[to] = leftSensorY[from];
+        rightSensorX[to] = rightSensorX[from]; rightSensorY[to] = rightSensorY[from];
+        kind[to] = kind[from]; flags[to] = flags[from]; direction[to] = direction[from];
+        random[to] = random[from];
+        lidarRays[to] = lidarRays[from]; lidarRange[to] = lidarRange[from];
+        if (lidar != null) lidar.move(from * MAX_LIDAR_RAYS, to * MAX_LIDAR_RAYS, MAX_LIDAR_RAYS);
+        dead[to] = dead[from];
+        id[to] = id[from];
+        handle[to] = handle[from];
+        handleSlot[handle[to]] = to;
+        kindPos[to] = kindPos[from];
+        byKind[kind[to]].set(kindPos[to], to);
+        view[to] = view[from];
+        if (view[to] != null) view[to].slot = to;
+    }
+
+    private void allocate(int capacity) {
+        if (x == null) {
+            x = new double[0]; y = new double[0]; rad = new double[0];
+            angle = new double[0]; speed = new double[0];
+            prevX = new double[0]; prevY = new double[0];
+            leftWheel = new double[0]; rightWheel = new double[0];
+            leftSensorX = new double[0]; leftSensorY = new double[0];
+            rightSensorX = new double[0]; rightSensorY = new double[0];
+            kind = new byte[0]; flags = new byte[0]; direction = new byte[0];
+            random = new long[0]; id = new int[0]; view = new Robot[0];
+            dead = new boolean[0]; handle = new int[0]; kindPos = new int[0];
+            lidarRays = new byte[0]; lidarRange = new double[0];
+        }
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        rad = Arrays.copyOf(rad, capacity);
+        angle = Arrays.copyOf(angle, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        leftWheel = Arrays.copyOf(leftWheel, capacity);
+        rightWheel = Arrays.copyOf(rightWheel, capacity);
+        leftSensorX = Arrays.copyOf(leftSensorX, capacity);
+        leftSensorY = Arrays.copyOf(leftSensorY, capacity);
+        rightSensorX = Arrays.copyOf(rightSensorX, capacity);
+        rightSensorY = Arrays.copyOf(rightSensorY, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        random = Arrays.copyOf(random, capacity);
+        lidarRays = Arrays.copyOf(lidarRays, capacity);
+        lidarRange = Arrays.copyOf(lidarRange, capacity);
+        if (lidar != null) lidar.ensure(capacity * MAX_LIDAR_RAYS);
+        dead = Arrays.copyOf(dead, capacity);
+        id = Arrays.copyOf(id, capacity);
+        handle = Arrays.copyOf(handle, capacity);
+        kindPos = Arrays.copyOf(kindPos, capacity);
+        view = Arrays.copyOf(view, capacity);
+    }
+}
@@ -3,11 +3,19 @@ package application;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class responsible for saving and loading the arena, robots, and obstacles to/from a file.
+ * Arenas are saved as binary snapshots (see ArenaSnapshot); text files from older versions
+ * can still be loaded.
  */
 public class Save {
+    /** Extension of snapshot files offered by the file choosers. */
+    static final String SNAPSHOT_EXTENSION = "arena";
+
     private RobotArena arena;
 
     /**
@@ -20,150 +28,197 @@ public class Save {
     }
 
     /**
-     * Saves the current state of the arena, including all robots and obstacles, to a text file.
+     * Saves the current state of the arena to a named snapshot file, on the calling thread.
+     * See ArenaSnapshot for the format; the GUI saves through SnapshotWriter instead, so that
+     * the simulation does not wait for the disk.
+     * 
+     * @param fileName The file to write.
+     * @throws IOException If the file cannot be written.
      */
-    public void SaveArena() {
-        TextFile tf = new TextFile("Text files", "txt");  // Create a TextFile object to handle saving as a txt file
-
-        // Check if the file was created or chosen successfully
-        if (tf.createFile()) {
-            
-            // Create a StringBuilder to accumulate all the data to be written
-            StringBuilder allData = new StringBuilder();
-
-            // Write the arena data to the StringBuilder
-            System.out.println("Writing arena data: " + arena.toString());
-            allData.append(arena.toString()).append("\n");
-
-            // Write all robots to the StringBuilder
-            System.out.println("Number of robots: " + arena.getAllRobots().size());
-            for (Robot robot : arena.getAllRobots()) {
-                System.out.println("Saving robot: " + robot.toString());
-                allData.append(robot.toString()).append("\n");  // Append each robot's details
-            }
+    public void saveArena(String fileName) throws IOException {
+        SimulationEvents.SaveEvent event = startSave(fileName, arena.getAllRobots().size(),
+                                                     arena.getObstacles().size());
+        boolean saved = false;
+        try {
+            ArenaSnapshot.write(arena, Path.of(fileName));
+            saved = true;
+        } finally {
+            endSave(event, saved);
+        }
+    }
 
-            // Write all obstacles to the StringBuilder
-            System.out.println("Number of obstacles: " + arena.getObstacles().size());
-            for (Obstacle obstacle : arena.getObstacles()) {
-                System.out.println("Saving obstacle: " + obstacle.getStrType());
-                allData.append(obstacle.getStrType()).append("\n");  // Append each obstacle's details
-            }
+    /**
+     * Starts a flight recorder event for a save, if they are being recorded.
+     *
+     * @param fileName The file being written.
+     * @param robots The robots being saved.
+     * @param obstacles The obstacles being saved.
+     * @return The event, or null if save events are not being recorded.
+     */
+    static SimulationEvents.SaveEvent startSave(String fileName, int robots, int obstacles) {
+        if (!SimulationEvents.SAVE.isEnabled()) return null;
+        SimulationEvents.SaveEvent event = new SimulationEvents.SaveEvent();
+        event.file = fileName;
+        event.robots = robots;
+        event.obstacles = obstacles;
+        event.begin();
+        return event;
+    }
 
-            // Write all accumulated data to the file
-            tf.writeAllFile(allData.toString());  // Write everything in one go
-            System.out.println("Arena saved successfully to " + tf.usedFileName());
-        } else {
-            System.out.println("Failed to create or select a file.");
-        }
+    /**
+     * Ends and commits a flight recorder event started by startSave.
+     *
+     * @param event The event, or null.
+     * @param succeeded True if the file was written.
+     */
+    static void endSave(SimulationEvents.SaveEvent event, boolean succeeded) {
+        if (event == null) return;
+        event.succeeded = succeeded;
+        event.commit();
+    }
 
-        // Now close the file after writing everything
-        tf.closeWriteFile();  // Close the file after writing everything
+    /**
+     * Loads the arena, robots, and obstacles from a named file.
+     * The file is either a snapshot or a text file written by older versions, and replaces the
+     * whole arena. The file is read and checked before the arena is cleared, so the arena is
+     * left as it was if it cannot be loaded.
+     * 
+     * @param fileName The file to read.
+     * @throws IOException If the file cannot be read or is not a saved arena.
+     */
+    public void loadArena(String fileName) throws IOException {
+        SimulationEvents.LoadEvent event = SimulationEvents.LOAD.isEnabled() ? new SimulationEvents.LoadEvent() : null;
+        if (event != null) {
+            event.file = fileName;
+            event.begin();
+        }
+        boolean loaded = false;
+        try {
+            Path file = Path.of(fileName);
+            if (ArenaSnapshot.isSnapshot(file)) {
+                ArenaSnapshot.read(arena, file);
+                System.out.println("Arena loaded successfully from: " + fileName);
+            } else {
+                readArena(fileName);
+            }
+            loaded = true;
+        } finally {
+            if (event != null) {
+                event.robots = arena.getAllRobots().size();
+                event.obstacles = arena.getObstacles().size();
+                event.succeeded = loaded;
+                event.commit();
+            }
+        }
     }
-     
+
     /**
-     * Loads the arena, robots, and obstacles from a saved file and updates the current arena state.
+     * Reads a text file written by older versions, in which every robot was one line.
+     * Every line is parsed before anything in the arena is changed.
      */
-    public void loadArena() {
-        TextFile tf = new TextFile("Text files", "txt"); // Your file chooser/creator
-
-        // If user selects or creates a file to load
-        if (tf.createFile()) {
-            try (BufferedReader br = new BufferedReader(new FileReader(tf.usedFileName()))) {
-
-                String line;
-
-                line = br.readLine();
-                if (line != null && line.startsWith("Arena Dimensions:")) {
-                    // Remove the "Arena Dimensions: " part
-                    String dimensionPart = line.substring("Arena Dimensions:".length()).trim();
-                    // dimensionPart should look like "500.000000 x 400.000000"
-                    String[] dims = dimensionPart.split("x");
-                    if (dims.length == 2) {
-                        double width = Double.parseDouble(dims[0].trim());
-                        double height = Double.parseDouble(dims[1].trim());
-
-                        // Since RobotArena has no dedicated "setDimensions" method,
-                        // we can directly modify xSize, ySize (they are package-private).
-                        arena.xSize = width;
-                        arena.ySize = height;
-                    }
+    private void readArena(String fileName) throws IOException {
+        double width = arena.xSize, height = arena.ySize;
+        List<Robot> robots = new ArrayList<>();
+        List<Obstacle> obstacles = new ArrayList<>();
+        int lineNumber = 1;
+        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+
+            String line;
+
+            line = br.readLine();
+            if (line != null && line.startsWith("Arena Dimensions:")) {
+                // Remove the "Arena Dimensions: " part
+                String dimensionPart = line.substring("Arena Dimensions:".length()).trim();
+                // dimensionPart should look like "500.000000 x 400.000000"
+                String[] dims = dimensionPart.split("x");
+                if (dims.length == 2) {
+                    width = Double.parseDouble(dims[0].trim());
+                    height = Double.parseDouble(dims[1].trim());
                 }
+            }
 
-                while ((line = br.readLine()) != null) {
-                    line = line.trim();
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                
+                // --- Parse Robot ---
+                if (line.startsWith("Robot ID:")) {
+                    // The coordinates hold a comma too, so only split what follows them
+                    int closeParen = line.indexOf(")");
+                    String[] parts = line.substring(closeParen + 1).split(","); // "", " Radius: 10.0", ...
+
+                    // Extract the ID, X, Y from the first part
+                    String firstPart = line.substring(0, closeParen + 1).trim(); // "Robot ID: 0 at (105.8, 222.6)"
+                    firstPart = firstPart.replace("Robot ID:", "").trim();  // "0 at (105.8, 222.6)"
                     
-                    // --- Parse Robot ---
-                    if (line.startsWith("Robot ID:")) {
-                        String[] parts = line.split(",");
-
-                        // Extract the ID, X, Y from the first part
-                        String firstPart = parts[0].trim(); // "Robot ID: 0 at (105.8, 222.6)"
-                        firstPart = firstPart.replace("Robot ID:", "").trim();  // "0 at (105.8, 222.6)"
-                        
-                        String[] idAndCoords = firstPart.split("at");
-                        String idString = idAndCoords[0].trim();    // "0"
-                        String coords = idAndCoords[1].trim();      // "(105.8, 222.6)"
+                    String[] idAndCoords = firstPart.split("at");
+                    String idString = idAndCoords[0].trim();    // "0"
+                    String coords = idAndCoords[1].trim();      // "(105.8, 222.6)"
 
-                        int robotID = Integer.parseInt(idString);
-                        
-                        // coords = "(105.8, 222.6)" -> remove parentheses
-                        coords = coords.replace("(", "").replace(")", "").trim();
-                        String[] xyParts = coords.split(",");
-                        double rx = Double.parseDouble(xyParts[0].trim());
-                        double ry = Double.parseDouble(xyParts[1].trim());
-
-                        // "Radius: 10.0"
-                        double radius = Double.parseDouble(parts[1].replace("Radius:", "").trim());
-                        // "Speed: 1.0"
-                        double speed = Double.parseDouble(parts[2].replace("Speed:", "").trim());
-                        // "Angle: 1045.8"
-                        double angle = Double.parseDouble(parts[3].replace("Angle:", "").trim());
-
-                        // We can create a BasicRobot (or whichever type you want).
-                        Robot newRobot = new BasicRobot(rx, ry, radius, angle, speed);
-
-                        // If you want to preserve the ID from file, you can manually set it,
-                        // but your Robot class automatically increments ID in its constructor.
-                        arena.addRobott(newRobot);
-                    }
+                    int robotID = Integer.parseInt(idString);
                     
-                    // --- Parse Obstacle ---
-                    else if (line.startsWith("Obstacle at")) {
-                        // Example:
-                        // "Obstacle at (105.8, 222.6), Radius: 10.0"
-                        
-                        // Isolate coordinates first: everything inside "(...)"
-                        int openParen = line.indexOf("(");
-                        int closeParen = line.indexOf(")");
+                    // coords = "(105.8, 222.6)" -> remove parentheses
+                    coords = coords.replace("(", "").replace(")", "").trim();
+                    String[] xyParts = coords.split(",");
+                    double rx = Double.parseDouble(xyParts[0].trim());
+                    double ry = Double.parseDouble(xyParts[1].trim());
+
+                    // "Radius: 10.0"
+                    double radius = Double.parseDouble(parts[1].replace("Radius:", "").trim());
+                    // "Speed: 1.0"
+                    double speed = Double.parseDouble(parts[2].replace("Speed:", "").trim());
+                    // "Angle: 1045.8"
+                    double angle = Double.parseDouble(parts[3].replace("Angle:", "").trim());
+
+                    // We can create a BasicRobot (or whichever type you want).
+                    Robot newRobot = new BasicRobot(rx, ry, radius, angle, speed);
+
+                    // If you want to preserve the ID from file, you can manually set it,
+                    // but your Robot class automatically increments ID in its constructor.
+                    robots.add(newRobot);
+                }
+                
+                // --- Parse Obstacle ---
+                else if (line.startsWith("Obstacle at")) {
+                    // Example:
+                    // "Obstacle at (105.8, 222.6), Radius: 10.0"
+                    
+                    // Isolate coordinates first: everything inside "(...)"
+                    int openParen = line.indexOf("(");
+                    int closeParen = line.indexOf(")");
+                    
+                    if (openParen > 0 && closeParen > openParen) {
+                        String coordStr = line.substring(openParen + 1, closeParen); // "105.8, 222.6"
+                        String[] xyParts = coordStr.split(",");
+                        double ox = Double.parseDouble(xyParts[0].trim());
+                        double oy = Double.parseDouble(xyParts[1].trim());
                         
-                        if (openParen > 0 && closeParen > openParen) {
-                            String coordStr = line.substring(openParen + 1, closeParen); // "105.8, 222.6"
-                            String[] xyParts = coordStr.split(",");
-                            double ox = Double.parseDouble(xyParts[0].trim());
-                            double oy = Double.parseDouble(xyParts[1].trim());
+                        // Next, find the radius substring
+                        int radiusIndex = line.indexOf("Radius:");
+                        if (radiusIndex > 0) {
+                            String radiusStr = line.substring(radiusIndex + 7).trim(); // "10.0"
+                            double oradius = Double.parseDouble(radiusStr);
                             
-                            // Next, find the radius substring
-                            int radiusIndex = line.indexOf("Radius:");
-                            if (radiusIndex > 0) {
-                                String radiusStr = line.substring(radiusIndex + 7).trim(); // "10.0"
-                                double oradius = Double.parseDouble(radiusStr);
-                                
-                                // Create the obstacle
-                                Obstacle newObs = new Obstacle(ox, oy, oradius);
-                                arena.addObstacle(newObs);
-                            }
+                            // Create the obstacle
+                            Obstacle newObs = new Obstacle(ox, oy, oradius);
+                            obstacles.add(newObs);
                         }
                     }
                 }
-
-                System.out.println("Arena loaded successfully from: " + tf.usedFileName());
-
-            } catch (IOException e) {
-                e.printStackTrace();
             }
-        } else {
-            System.out.println("Failed to load the file.");
+        } catch (RuntimeException e) {
+            // a number or a field missing from a line
+            throw new IOException(fileName + ", line " + lineNumber + ": not a saved arena (" + e + ")", e);
         }
+
+        arena.clear();
+        // Since RobotArena has no dedicated "setDimensions" method,
+        // we can directly modify xSize, ySize (they are package-private).
+        arena.xSize = width;
+        arena.ySize = height;
+        for (Obstacle o : obstacles) arena.addObstacle(o);
+        for (Robot r : robots) arena.addRobott(r);
+        System.out.println("Arena loaded successfully from: " + fileName);
     }
 }
 
@@ -0,0 +1,66 @@
+package application;
+
+/**
+ * System that runs the two line sensors of BasicRobots, TeleportingRobots and UserControlledRobots.
+ * A sensor is triggered when it passes close to another robot's centre or crosses an obstacle,
+ * and a robot with a triggered sensor turns away.
+ */
+final class SensingSystem {
+    // Line.distanceFrom rounds the foot of the perpendicular to whole pixels, so allow a pixel of slack
+    private static final double SEARCH_REACH = RobotStore.SENSOR_LENGTH + 1;
+
+    /**
+     * Checks whether robots of a kind use their line sensors to avoid other robots.
+     *
+     * @param k The kind of robot.
+     * @return True for BasicRobot, TeleportingRobot and UserControlledRobot.
+     */
+    static boolean senses(RobotKind k) {
+        return k == RobotKind.BASIC || k == RobotKind.TELEPORTING || k == RobotKind.USER_CONTROLLED;
+    }
+
+    /**
+     * Runs the sensors of one robot. Positions are only read from the store; the robot's new
+     * heading and sensor flags are written to the given arrays, and its sensor lines to the store.
+     *
+     * @param arena The arena the robots are in.
+     * @param s The store holding the robots.
+     * @param i The slot of the robot.
+     * @param angleOut Array receiving the new heading at index i.
+     * @param flagsOut Array receiving the new sensor flags at index i.
+     * @param nearby A list the robot query can use.
+     */
+    void senseOne(RobotArena arena, RobotStore s, int i, double[] angleOut, byte[] flagsOut, IndexList nearby) {
+        // Update lines again so they're fresh
+        s.updateSensorLines(i);
+        double x = s.x[i], y = s.y[i];
+        double lx = s.leftSensorX[i],  ly = s.leftSensorY[i];
+        double rx = s.rightSensorX[i], ry = s.rightSensorY[i];
+        boolean leftTriggered = false, rightTriggered = false;
+
+        // 1. For each sensor, check if it sees another robot
+        nearby.clear();
+        // a robot the sensor passes close to has its circle within SEARCH_REACH of the centre
+        arena.robotsOverlapping(s.x[i], s.y[i], SEARCH_REACH, nearby);
+        for (int n = 0; n < nearby.size(); n++) {
+            int j = nearby.get(n);
+            if (s.id[j] == s.id[i]) continue;
+            // If the sensor line is near the other robot’s center, treat as triggered
+            if (Line.distanceFrom(x, y, lx, ly, s.x[j], s.y[j]) < s.rad[j]) leftTriggered = true;
+            if (Line.distanceFrom(x, y, rx, ry, s.x[j], s.y[j]) < s.rad[j]) rightTriggered = true;
+        }
+
+        // 2. For each sensor, check if it sees an obstacle
+        if (arena.sensorSeesObstacle(x, y, lx, ly)) leftTriggered = true;
+        if (arena.sensorSeesObstacle(x, y, rx, ry)) rightTriggered = true;
+
+        flagsOut[i] = (byte) ((leftTriggered ? RobotStore.LEFT_SENSOR : 0)
+                            | (rightTriggered ? RobotStore.RIGHT_SENSOR : 0));
+
+        // 3. If either sensor triggered (from robot or obstacle), turn away
+        angleOut[i] = s.angle[i];
+        if (leftTriggered || rightTriggered) {
+            angleOut[i] += 100 + (s.nextDouble(i) * 80);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package application;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder events for what the simulation does, so that a recording shows stalls next
+ * to the ticks, kills, saves and loads around them. They are all in the "Robot GUI" category and
+ * can be switched on and off like any other event, for example with
+ * <code>-XX:StartFlightRecording:settings=profile</code> and a .jfc naming robotgui.Tick.
+ * <p>
+ * Callers check the event's type with isEnabled before creating an event, so while nothing is
+ * recording an event costs one flag read and allocates nothing.
+ */
+final class SimulationEvents {
+    private SimulationEvents() {
+    }
+
+    /**
+     * One call of RobotArena.adjustAllRobots: it starts when the tick does and ends with it.
+     * The phase times are those of TickProfiler's phases.
+     */
+    @Name("robotgui.Tick")
+    @Label("Simulation Tick")
+    @Category({"Robot GUI", "Simulation"})
+    @StackTrace(false)
+    static final class TickEvent extends Event {
+        @Label("Robots") @Description("Robots in the arena at the end of the tick")
+        int robots;
+        @Label("Obstacles")
+        int obstacles;
+        @Label("Kills") @Description("Robots killed by KillerRobots in this tick")
+        int kills;
+        @Label("Parallel")
+        boolean parallel;
+        @Label("Group") @Timespan(Timespan.NANOSECONDS)
+        long group;
+        @Label("Move") @Timespan(Timespan.NANOSECONDS)
+        long move;
+        @Label("Teleport") @Timespan(Timespan.NANOSECONDS)
+        long teleport;
+        @Label("Prepare") @Description("Broadphase, obstacle tree and ray grid rebuilds") @Timespan(Timespan.NANOSECONDS)
+        long prepare;
+        @Label("Interact") @Timespan(Timespan.NANOSECONDS)
+        long interact;
+        @Label("Kill") @Timespan(Timespan.NANOSECONDS)
+        long kill;
+        @Label("Apply") @Timespan(Timespan.NANOSECONDS)
+        long apply;
+        @Label("Remove") @Timespan(Timespan.NANOSECONDS)
+        long remove;
+
+        /**
+         * Fills in the phase times.
+         *
+         * @param nanos Time per TickProfiler phase.
+         */
+        void setPhases(long[] nanos) {
+            group = nanos[TickProfiler.GROUP];
+            move = nanos[TickProfiler.MOVE];
+            teleport = nanos[TickProfiler.TELEPORT];
+            prepare = nanos[TickProfiler.PREPARE];
+            interact = nanos[TickProfiler.INTERACT];
+            kill = nanos[TickProfiler.KILL];
+            apply = nanos[TickProfiler.APPLY];
+            remove = nanos[TickProfiler.REMOVE];
+        }
+    }
+
+    /** Type of TickEvent, to check before making one. */
+    static final EventType TICK = EventType.getEventType(TickEvent.class);
+
+    /**
+     * A rebuild of the broadphase index over the robots.
+     */
+    @Name("robotgui.BroadPhaseRebuild")
+    @Label("Broadphase Rebuild")
+    @Category({"Robot GUI", "Simulation"})
+    @StackTrace(false)
+    static final class BroadPhaseEvent extends Event {
+        @Label("Robots")
+        int robots;
+        @Label("Index") @Description("grid or quadtree")
+        String index;
+        @Label("Cell Size")
+        double cellSize;
+    }
+
+    /** Type of BroadPhaseEvent, to check before making one. */
+    static final EventType BROAD_PHASE = EventType.getEventType(BroadPhaseEvent.class);
+
+    /**
+     * A robot killed by a KillerRobot.
+     */
+    @Name("robotgui.Kill")
+    @Label("Robot Killed")
+    @Category({"Robot GUI", "Simulation"})
+    @StackTrace(false)
+    static final class KillEvent extends Event {
+        @Label("Robot ID")
+        int robotId;
+        @Label("Kind")
+        String kind;
+        @Label("X")
+        double x;
+        @Label("Y")
+        double y;
+    }
+
+    /** Type of KillEvent, to check before making one. */
+    static final EventType KILL = EventType.getEventType(KillEvent.class);
+
+    /**
+     * The arena being written to a file by Save.
+     */
+    @Name("robotgui.Save")
+    @Label("Arena Save")
+    @Category({"Robot GUI", "Persistence"})
+    static final class SaveEvent extends Event {
+        @Label("File")
+        String file;
+        @Label("Robots")
+        int robots;
+        @Label("Obstacles")
+        int obstacles;
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    /** Type of SaveEvent, to check before making one. */
+    static final EventType SAVE = EventType.getEventType(SaveEvent.class);
+
+    /**
+     * The arena being read from a file by Save.
+     */
+    @Name("robotgui.Load")
+    @Label("Arena Load")
+    @Category({"Robot GUI", "Persistence"})
+    static final class LoadEvent extends Event {
+        @Label("File")
+        String file;
+        @Label("Robots") @Description("Robots in the arena after loading")
+        int robots;
+        @Label("Obstacles") @Description("Obstacles in the arena after loading")
+        int obstacles;
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    /** Type of LoadEvent, to check before making one. */
+    static final EventType LOAD = EventType.getEventType(LoadEvent.class);
+
+    /**
+     * A maze of obstacles being generated by RobotArena.toggleArena.
+     */
+    @Name("robotgui.MazeGeneration")
+    @Label("Maze Generation")
+    @Category({"Robot GUI", "Simulation"})
+    static final class MazeEvent extends Event {
+        @Label("Robots")
+        int robots;
+        @Label("Obstacles") @Description("Obstacles in the maze")
+        int obstacles;
+    }
+
+    /** Type of MazeEvent, to check before making one. */
+    static final EventType MAZE = EventType.getEventType(MazeEvent.class);
+}
@@ -0,0 +1,151 @@
+package application;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Runs an arena on its own thread with a fixed timestep, independent of the display refresh rate.
+ * After each batch of ticks the arena is copied into a Frame and published through a TripleBuffer,
+ * so the FX thread only ever reads frames and never the live robots.
+ * Changes from the user interface are queued as commands and applied between ticks.
+ * A command that throws is reported to the failure handler and the loop carries on with the
+ * next one, so one bad command cannot stop the simulation thread.
+ */
+final class SimulationLoop implements Runnable {
+    /** Ticks per second of simulated time. */
+    static final int TICKS_PER_SECOND = 60;
+    /** Length of one tick in nanoseconds. */
+    static final long STEP_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    private static final int MAX_CATCH_UP = 5;      // ticks run in one go before dropping behind
+
+    private final RobotArena arena;
+    private final TripleBuffer<Frame> frames = new TripleBuffer<>(new Frame(), new Frame(), new Frame());
+    private final ConcurrentLinkedQueue<Consumer<RobotArena>> commands = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+    private volatile Consumer<RuntimeException> onFailure = Throwable::printStackTrace;
+    private Thread thread;
+    private long ticks;
+
+    /**
+     * Constructs a loop around an arena. From start on, the arena must only be touched
+     * by the loop's thread, through commands.
+     *
+     * @param arena The arena to run.
+     */
+    SimulationLoop(RobotArena arena) {
+        this.arena = arena;
+        frames.back().capture(arena, 0, System.nanoTime(), running);
+        frames.publish();
+    }
+
+    /**
+     * Starts the simulation thread.
+     */
+    void start() {
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the simulation thread and waits for it to finish.
+     */
+    void stop() {
+        stopped = true;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        arena.shutdown();
+    }
+
+    /**
+     * Starts or pauses the ticks. Commands are still applied while paused.
+     *
+     * @param run True to run, false to pause.
+     */
+    void setRunning(boolean run) {
+        running = run;
+        wake();
+    }
+
+    /**
+     * Queues a change to the arena, to be made on the simulation thread before the next tick.
+     *
+     * @param command The change to make.
+     */
+    void submit(Consumer<RobotArena> command) {
+        commands.add(command);
+        wake();
+    }
+
+    /**
+     * Sets what is told when a command throws. It is called on the simulation thread; the
+     * arena may be left part way through the failed change. Prints the stack trace by default.
+     *
+     * @param handler The handler.
+     */
+    void setFailureHandler(Consumer<RuntimeException> handler) {
+        onFailure = handler;
+    }
+
+    /**
+     * Gets the most recent frame. FX thread only; the frame stays unchanged until the next call.
+     *
+     * @return The latest published frame.
+     */
+    Frame latestFrame() {
+        return frames.latest();
+    }
+
+    @Override
+    public void run() {
+        long due = System.nanoTime();
+        while (!stopped) {
+            boolean changed = applyCommands();
+            long now = System.nanoTime();
+            if (running) {
+                int steps = 0;
+                while (now - due >= 0 && steps < MAX_CATCH_UP) {
+                    arena.adjustAllRobots();
+                    ticks++;
+                    due += STEP_NANOS;
+                    steps++;
+                }
+                if (now - due >= 0) due = now;     // too far behind, so skip the missed ticks
+                changed |= steps > 0;
+            } else {
+                due = now;
+            }
+            if (changed) {
+                frames.back().capture(arena, ticks, due - STEP_NANOS, running);
+                frames.publish();
+            }
+            LockSupport.parkNanos(running ? due - System.nanoTime() : STEP_NANOS);
+        }
+    }
+
+    private boolean applyCommands() {
+        boolean any = false;
+        Consumer<RobotArena> c;
+        while ((c = commands.poll()) != null) {
+            try {
+                c.accept(arena);
+            } catch (RuntimeException e) {
+                onFailure.accept(e);
+            }
+            any = true;
+        }
+        return any;
+    }
+
+    private void wake() {
+        if (thread != null) LockSupport.unpark(thread);
+    }
+}
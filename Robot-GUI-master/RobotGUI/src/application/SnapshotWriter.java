@@ -0,0 +1,113 @@
+package application;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes arena snapshots on a background thread of its own, so the simulation keeps ticking while
+ * a save is on its way to disk. The simulation thread only captures the arena's state between
+ * ticks (ArenaSnapshot.capture), which costs a copy of each column, and hands it over here.
+ * <p>
+ * Snapshots are written one at a time, in the order they were handed over. Each save returns a
+ * CompletableFuture that completes on the writer thread with the file written, or with the
+ * reason it could not be; callers on the FX thread hop back with Platform.runLater to report it.
+ * Autosaves check busy first and skip a checkpoint rather than queue up behind a slow disk.
+ */
+final class SnapshotWriter {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "snapshot writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicInteger pending = new AtomicInteger();   // saves handed over and not yet finished
+
+    /**
+     * What a finished save wrote.
+     */
+    static final class Result {
+        /** The file written. */
+        final Path file;
+        /** The robots in the snapshot. */
+        final int robots;
+        /** How long writing took, not counting the capture, in nanoseconds. */
+        final long nanos;
+
+        Result(Path file, int robots, long nanos) {
+            this.file = file;
+            this.robots = robots;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Captures an arena's state and queues it to be written.
+     * Must be called on the thread that ticks the arena, between ticks.
+     *
+     * @param arena The arena.
+     * @param file The file to write; replaced if it exists.
+     * @return The save, completed once the file is on disk; completed exceptionally, with an
+     *         UncheckedIOException around the cause, if it could not be written.
+     */
+    CompletableFuture<Result> save(RobotArena arena, Path file) {
+        return save(ArenaSnapshot.capture(arena), file);
+    }
+
+    /**
+     * Queues a captured state to be written.
+     *
+     * @param state The state, as ArenaSnapshot.capture returned it.
+     * @param file The file to write; replaced if it exists.
+     * @return The save, completed as for save(RobotArena, Path).
+     */
+    CompletableFuture<Result> save(ArenaSnapshot.State state, Path file) {
+        pending.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> write(state, file), executor)
+                                .whenComplete((result, failure) -> pending.decrementAndGet());
+    }
+
+    /**
+     * Checks whether a save is queued or being written.
+     *
+     * @return True until every save handed over has finished.
+     */
+    boolean busy() {
+        return pending.get() > 0;
+    }
+
+    /**
+     * Finishes the saves already handed over, then stops the writer thread.
+     *
+     * @param timeoutMillis How long to wait for them.
+     * @return True if they all finished in time.
+     */
+    boolean shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Result write(ArenaSnapshot.State state, Path file) {
+        SimulationEvents.SaveEvent event = Save.startSave(file.toString(), state.robots, state.obstacles);
+        boolean saved = false;
+        long start = System.nanoTime();
+        try {
+            ArenaSnapshot.write(state, file);
+            saved = true;
+            return new Result(file, state.robots, System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            Save.endSave(event, saved);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package application;
+
+/**
+ * A broadphase index over the robots of an arena.
+ * Robots are referred to by their slot in the arena's RobotStore.
+ */
+interface SpatialIndex {
+
+    /**
+     * Rebuilds the index from scratch.
+     *
+     * @param robots The store holding the robots to index.
+     * @param xSize The width of the arena.
+     * @param ySize The height of the arena.
+     * @param cellSize The preferred cell size, normally twice the largest robot radius.
+     */
+    void build(RobotStore robots, double xSize, double ySize, double cellSize);
+
+    /**
+     * Collects every robot that may lie within reach of a point.
+     * The result can contain robots that are further away; it never misses one that is closer.
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @param reach The distance from the point to search.
+     * @param out The list that the candidate indices are appended to.
+     */
+    void query(double x, double y, double reach, IndexList out);
+
+    /**
+     * Collects the robots whose circles may overlap a circle, running the candidates that
+     * the index finds through the collision kernel.
+     *
+     * @param x The x-coordinate of the circle.
+     * @param y The y-coordinate of the circle.
+     * @param r The radius of the circle.
+     * @param reach The distance from the centre to search, at least r plus the largest robot radius.
+     * @param out The list that the slots of the robots found are appended to.
+     */
+    void overlapping(double x, double y, double r, double reach, IndexList out);
+}
@@ -0,0 +1,158 @@
+package application;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+/**
+ * Pre-drawn images of robot bodies and wheels, so that MyCanvas can draw a robot as one image
+ * instead of working out and filling its circles every frame.
+ * <p>
+ * Each page of the atlas holds one kind of robot at one size on screen, turned to each of
+ * HEADINGS headings, drawn by the same code as an uncached robot. A robot is drawn with the page
+ * cell nearest its heading. Sizes are rounded to a quarter pixel, so a change of zoom or radius
+ * simply asks for a new page; pages not used for longest are dropped once the atlas holds more than
+ * MAX_PIXELS pixels, which bounds its memory. Robots bigger than MAX_RADIUS on screen are not cached.
+ * Only to be used on the FX thread.
+ */
+final class SpriteAtlas {
+    /** Number of headings drawn per page; a robot's heading is rounded to the nearest. */
+    static final int HEADINGS = 64;
+    /** Largest radius in pixels that is cached. */
+    static final double MAX_RADIUS = 32;
+    /** Most pixels the pages may hold together, 4 bytes each. */
+    static final long MAX_PIXELS = 8L << 20;
+
+    private static final int COLUMNS = 8;          // cells per row of a page
+    private static final double REACH = 1.6;       // wheels stick out this many radii from the centre
+    private static final int STEPS_PER_PIXEL = 4;  // radii are rounded to a quarter pixel
+
+    /**
+     * One kind of robot at one size, turned to every heading.
+     */
+    static final class Page {
+        final Image image;
+        final int cell;                            // width and height of each heading's cell
+
+        private Page(Image image, int cell) {
+            this.image = image;
+            this.cell = cell;
+        }
+
+        /**
+         * Gets the x-coordinate in the image of the cell for a heading.
+         *
+         * @param heading The heading's number, from 0 to HEADINGS - 1.
+         * @return The left edge of its cell.
+         */
+        int cellX(int heading) {
+            return heading % COLUMNS * cell;
+        }
+
+        /**
+         * Gets the y-coordinate in the image of the cell for a heading.
+         *
+         * @param heading The heading's number, from 0 to HEADINGS - 1.
+         * @return The top edge of its cell.
+         */
+        int cellY(int heading) {
+            return heading / COLUMNS * cell;
+        }
+    }
+
+    private final LinkedHashMap<Long, Page> pages = new LinkedHashMap<>(16, 0.75f, true);  // least recently used first
+    private long pixels;                           // pixels held by pages
+    private long lastKey = -1;                     // the last page looked up, to skip the map for runs of one size
+    private Page lastPage;
+
+    /**
+     * Finds the number of the drawn heading nearest a heading.
+     *
+     * @param angle The heading in degrees.
+     * @return The heading's number, from 0 to HEADINGS - 1.
+     */
+    static int heading(double angle) {
+        long h = Math.round(angle * HEADINGS / 360);
+        return (int) Math.floorMod(h, (long) HEADINGS);
+    }
+
+    /**
+     * Gets the page for a kind of robot at a size, drawing it if it is not in the atlas.
+     *
+     * @param kind The kind of robot.
+     * @param rad The radius of the robot on screen, in pixels.
+     * @return The page, or null if robots that big are not cached.
+     */
+    Page page(RobotKind kind, double rad) {
+        if (!(rad <= MAX_RADIUS)) return null;
+        long steps = Math.max(1, Math.round(rad * STEPS_PER_PIXEL));
+        long key = steps << 8 | kind.ordinal();
+        if (key == lastKey) return lastPage;
+        Page page = pages.get(key);
+        if (page == null) {
+            page = draw(kind, (double) steps / STEPS_PER_PIXEL);
+            pages.put(key, page);
+            pixels += (long) page.cell * page.cell * HEADINGS;
+            evict(page);
+        }
+        lastKey = key;
+        lastPage = page;
+        return page;
+    }
+
+    /**
+     * Drops every page, for example when the canvas it is used with goes away.
+     */
+    void clear() {
+        pages.clear();
+        pixels = 0;
+        lastKey = -1;
+        lastPage = null;
+    }
+
+    /**
+     * Drops the least recently used pages until the atlas is within its budget, keeping the newest one.
+     */
+    private void evict(Page keep) {
+        Iterator<Page> it = pages.values().iterator();
+        while (pixels > MAX_PIXELS && it.hasNext()) {
+            Page p = it.next();
+            if (p == keep) continue;
+            it.remove();
+            pixels -= (long) p.cell * p.cell * HEADINGS;
+            if (p == lastPage) {
+                lastKey = -1;
+                lastPage = null;
+            }
+        }
+    }
+
+    /**
+     * Draws every heading of a robot into a new page, with the same code that draws uncached robots.
+     */
+    private static Page draw(RobotKind kind, double rad) {
+        int cell = (int) Math.ceil(2 * rad * REACH) + 2;
+        int rows = HEADINGS / COLUMNS;
+        Canvas canvas = new Canvas(COLUMNS * cell, rows * cell);
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        MyCanvas mc = new MyCanvas(gc, (int) canvas.getWidth(), (int) canvas.getHeight());
+        for (int h = 0; h < HEADINGS; h++) {
+            double x = h % COLUMNS * cell + cell / 2.0;
+            double y = h / COLUMNS * cell + cell / 2.0;
+            double angle = h * 360.0 / HEADINGS;
+            if (kind == RobotKind.ADVANCED) {
+                AdvancedRobot.drawAdvanced(mc, x, y, rad, angle, kind.colour());
+            } else {
+                BasicRobot.drawBasic(mc, x, y, rad, angle, kind.colour());
+            }
+        }
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        return new Page(canvas.snapshot(params, null), cell);
+    }
+}
@@ -0,0 +1,145 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+
+/**
+ * The pane beside the arena listing how many robots there are of each kind and where each robot is,
+ * as RobotArena.describeAll does.
+ * <p>
+ * The robots are listed in a ListView, which only makes cells for the rows in sight and reuses
+ * them as the list scrolls, so the cost does not grow with the number of robots. The pane copies
+ * what it shows from a frame at most refreshHz times a second, and a cell only formats its text
+ * again when the robot it shows has moved or changed. The rate is read from the system property
+ * robotgui.statusHz, 4 if it is not set.
+ */
+final class StatusPane extends VBox {
+    /** Default number of updates per second. */
+    static final int DEFAULT_HZ = 4;
+
+    private final long refreshNanos;
+    private final Label[] kindLabels = new Label[RobotKind.values().length];
+    private final int[] shownKindCount = new int[kindLabels.length];
+    private final ListView<Integer> list = new ListView<>();
+    private final ObservableList<Integer> rows = FXCollections.observableArrayList();   // 0 to count - 1
+    private final List<RobotCell> cells = new ArrayList<>();                           // every cell the list made
+    private long shownAt;
+    private Frame lastFrame;                       // the frame passed to the last update
+    private boolean stale = true;                  // true if a frame newer than the one shown has been seen
+
+    // what the rows show, copied from the last frame shown
+    private int count;
+    private int[] id = new int[0];
+    private double[] x = new double[0], y = new double[0];
+
+    /**
+     * A list row showing one robot. It keeps what it last formatted, so that rows whose robot
+     * has not changed keep their text.
+     */
+    private final class RobotCell extends ListCell<Integer> {
+        private int row = -1, shownId;
+        private double shownX, shownY;
+
+        @Override
+        protected void updateItem(Integer item, boolean empty) {
+            super.updateItem(item, empty);
+            row = empty || item == null ? -1 : item;
+            show();
+        }
+
+        void show() {
+            if (row < 0 || row >= count) {
+                row = -1;
+                setText(null);
+                return;
+            }
+            if (getText() != null && id[row] == shownId && x[row] == shownX && y[row] == shownY) return;
+            shownId = id[row];
+            shownX = x[row];
+            shownY = y[row];
+            setText("Robot ID: " + shownId + " Position: (" + shownX + ", " + shownY + ")");
+        }
+    }
+
+    /**
+     * Constructs an empty status pane, updating at the rate set by robotgui.statusHz.
+     */
+    StatusPane() {
+        this(Integer.getInteger("robotgui.statusHz", DEFAULT_HZ));
+    }
+
+    /**
+     * Constructs an empty status pane.
+     *
+     * @param refreshHz The most times a second the pane is updated.
+     */
+    StatusPane(int refreshHz) {
+        refreshNanos = 1_000_000_000L / Math.max(1, refreshHz);
+        shownAt = System.nanoTime() - refreshNanos;   // so the first frame is shown at once
+        for (RobotKind k : RobotKind.values()) {
+            kindLabels[k.ordinal()] = new Label(k.strType() + "s: 0");
+            getChildren().add(kindLabels[k.ordinal()]);
+        }
+        list.setItems(rows);
+        list.setCellFactory(v -> {
+            RobotCell cell = new RobotCell();
+            cells.add(cell);
+            return cell;
+        });
+        VBox.setVgrow(list, Priority.ALWAYS);
+        getChildren().add(list);
+    }
+
+    /**
+     * Shows the latest frame, unless the pane was updated too recently or already shows it.
+     * Meant to be called on every pulse with SimulationLoop.latestFrame, so that each new frame is noticed.
+     *
+     * @param f The latest frame.
+     * @param now The current System.nanoTime().
+     */
+    void update(Frame f, long now) {
+        if (f != lastFrame) stale = true;   // frames are reused, but a new one is never the one held last pulse
+        lastFrame = f;
+        if (!stale || now - shownAt < refreshNanos) return;
+        stale = false;
+        shownAt = now;
+
+        for (int k = 0; k < kindLabels.length; k++) {
+            if (f.kindCount[k] != shownKindCount[k]) {
+                shownKindCount[k] = f.kindCount[k];
+                kindLabels[k].setText(RobotKind.of((byte) k).strType() + "s: " + f.kindCount[k]);
+            }
+        }
+
+        int n = f.count;
+        if (id.length < n) {
+            int capacity = Math.max(n, id.length * 2);
+            id = Arrays.copyOf(id, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+        }
+        System.arraycopy(f.id, 0, id, 0, n);
+        System.arraycopy(f.x, 0, x, 0, n);
+        System.arraycopy(f.y, 0, y, 0, n);
+        count = n;
+
+        // the list's items are just the row numbers, so they only change when the count does
+        if (rows.size() > n) {
+            rows.remove(n, rows.size());
+        } else if (rows.size() < n) {
+            List<Integer> more = new ArrayList<>(n - rows.size());
+            for (int r = rows.size(); r < n; r++) more.add(r);
+            rows.addAll(more);
+        }
+        for (int c = 0; c < cells.size(); c++) cells.get(c).show();
+    }
+}
@@ -0,0 +1,28 @@
+package application;
+
+/**
+ * System that gives every TeleportingRobot a chance each tick to jump to a random position.
+ */
+final class TeleportSystem {
+    /** Chance per tick that a TeleportingRobot teleports. */
+    static final double TELEPORT_CHANCE = 0.1;
+
+    /**
+     * Gives one TeleportingRobot its chance to teleport.
+     *
+     * @param s The store holding the robots.
+     * @param i The slot of the TeleportingRobot.
+     * @param xLimit The width of the arena.
+     * @param yLimit The height of the arena.
+     */
+    void teleportOne(RobotStore s, int i, double xLimit, double yLimit) {
+        if (s.nextDouble(i) < TELEPORT_CHANCE) {
+            s.x[i] = s.nextDouble(i) * xLimit;
+            s.y[i] = s.nextDouble(i) * yLimit;
+            s.clampPosition(i, xLimit, yLimit);
+            // jump straight there when drawn, rather than sliding across the arena
+            s.prevX[i] = s.x[i];
+            s.prevY[i] = s.y[i];
+        }
+    }
+}
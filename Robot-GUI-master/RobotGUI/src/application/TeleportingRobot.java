@@ -3,6 +3,7 @@ package application;
 /**
  * A subclass of BasicRobot that introduces teleportation behavior.
  * The robot moves in the direction of its current angle and has a chance to teleport to a random position.
+ * The teleporting itself is carried out by the arena's TeleportSystem.
  */
 public class TeleportingRobot extends BasicRobot {
 
@@ -16,45 +17,21 @@ public class TeleportingRobot extends BasicRobot {
      * @param speed The speed of the robot's movement.
      */
     TeleportingRobot(double ix, double iy, double ir, double angle, double speed) {
-        super(ix, iy, ir, angle, speed);
-        
-        col = 'o';  // Set the color of the robot
+        super(ix, iy, ir, angle, speed);  // orange, from its kind
     }
 
     /**
-     * Moves the robot a small distance in its current direction and has a chance to teleport.
+     * Constructs a view onto a TeleportingRobot already in a store; see Robot(RobotStore, int).
      * 
-     * @param xLimit The maximum x-coordinate limit for the arena.
-     * @param yLimit The maximum y-coordinate limit for the arena.
+     * @param s The store holding the robot.
+     * @param i The robot's slot.
      */
-    @Override
-    public void move(double xLimit, double yLimit) {
-        // Move the robot a small distance in its current direction
-        double radAngle = Math.toRadians(bAngle);
-        this.x += bSpeed * Math.cos(radAngle);  // Move in the direction of the current angle
-        this.y += bSpeed * Math.sin(radAngle);
-
-        // Check if the robot should teleport
-        if (Math.random() < 0.1) {  // 10% chance to teleport every time move is called
-            teleport(xLimit, yLimit);
-        }
-
-        // Ensure the robot stays within the arena bounds
-        clampPosition(xLimit, yLimit);
+    TeleportingRobot(RobotStore s, int i) {
+        super(s, i);
     }
 
-    /**
-     * Teleports the robot to a new random position within the arena limits.
-     * 
-     * @param xLimit The maximum x-coordinate limit for the arena.
-     * @param yLimit The maximum y-coordinate limit for the arena.
-     */
-    private void teleport(double xLimit, double yLimit) {
-        // Teleport the robot to a new random position
-        double randomX = Math.random() * xLimit;
-        double randomY = Math.random() * yLimit;
-
-        this.x = randomX;
-        this.y = randomY;
+    @Override
+    RobotKind kind() {
+        return RobotKind.TELEPORTING;
     }
 }
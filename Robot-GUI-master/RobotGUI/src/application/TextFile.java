@@ -199,8 +199,8 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 			String[] manyStrings = data.split("\n");		// split data into lines 
 			for (int ct=0; ct<manyStrings.length; ct++)		// for each line
 				putNextLine(manyStrings[ct]);				// put into file
-				closeWriteFile();							// close file
-			}
+			closeWriteFile();								// close file once every line is written
+		}
 
 		
 		public static void main(String[] args) {
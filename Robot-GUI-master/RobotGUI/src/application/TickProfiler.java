@@ -0,0 +1,205 @@
+package application;
+
+import java.util.List;
+
+/**
+ * Times the phases of RobotArena.adjustAllRobots into LatencyHistograms, and counts the
+ * collision and sensor tests of each tick, while it is switched on. Switched off, ticks only
+ * read one flag per phase.
+ * <p>
+ * Each phase has a histogram of its wall time per tick. The stages that run kind by kind (move,
+ * teleport, interact and kill) also have one per kind, of the time spent on that kind's robots
+ * summed over all threads. Obstacle checks run inside the interact stage, robot by robot, so they
+ * are part of its time rather than a phase of their own.
+ * <p>
+ * Histograms are filled on the simulation thread and read back by summarise, also on that thread,
+ * when a Frame is captured. setEnabled may be called from any thread; the histograms are cleared
+ * on the simulation thread before the next tick is timed.
+ */
+final class TickProfiler {
+    /** Phase: listing the slots by kind. */
+    static final int GROUP = 0;
+    /** Phase: every robot takes its step. */
+    static final int MOVE = 1;
+    /** Phase: teleporting robots may jump. */
+    static final int TELEPORT = 2;
+    /** Phase: the broadphase, obstacle tree and ray grid are brought up to date. */
+    static final int PREPARE = 3;
+    /** Phase: lidar, sensing, bouncing and obstacle turns. */
+    static final int INTERACT = 4;
+    /** Phase: killer robots find their victims. */
+    static final int KILL = 5;
+    /** Phase: the new positions are swapped in and the victims collected. */
+    static final int APPLY = 6;
+    /** Phase: dead robots are taken out of the store. */
+    static final int REMOVE = 7;
+    /** The whole of adjustAllRobots. */
+    static final int TICK = 8;
+    /** Number of phases. */
+    static final int PHASES = 9;
+
+    /** Names of the phases, for display. */
+    static final String[] PHASE_NAMES = {
+        "group", "move", "teleport", "prepare", "interact", "kill", "apply", "remove", "tick"
+    };
+
+    /** Number of histograms per phase: all robots, then each kind. */
+    static final int SERIES = RobotKind.values().length + 1;
+    /** Number of values summarise writes: p50, p99 and max for every histogram, then the test counts. */
+    static final int SUMMARY_LENGTH = PHASES * SERIES * 3 + 2;
+    /** Place in the summary of the number of collision tests in the last tick. */
+    static final int COLLISION_TESTS = SUMMARY_LENGTH - 2;
+    /** Place in the summary of the number of sensor tests in the last tick. */
+    static final int SENSOR_TESTS = SUMMARY_LENGTH - 1;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES * SERIES];
+    private final long[] kindNanos = new long[PHASES * SERIES];   // this tick's time per phase and kind
+    private volatile boolean enabled;
+    private volatile boolean resetPending;
+    private long collisionTests, sensorTests;          // counted so far this tick
+    private long lastCollisionTests, lastSensorTests;  // counted in the last whole tick
+
+    /**
+     * Constructs a profiler, switched off.
+     */
+    TickProfiler() {
+        for (int h = 0; h < histograms.length; h++) histograms[h] = new LatencyHistogram();
+    }
+
+    /**
+     * Checks whether ticks are being timed. Simulation thread only.
+     *
+     * @return True while switched on.
+     */
+    boolean enabled() {
+        if (resetPending) {
+            resetPending = false;
+            for (LatencyHistogram h : histograms) h.reset();
+        }
+        return enabled;
+    }
+
+    /**
+     * Switches timing on or off. Switching on starts the histograms afresh.
+     *
+     * @param on True to time ticks.
+     */
+    void setEnabled(boolean on) {
+        if (on && !enabled) resetPending = true;
+        enabled = on;
+    }
+
+    /**
+     * Finds the place of a phase and kind in the summary and the per-kind arrays.
+     *
+     * @param phase The phase.
+     * @param kind The kind's ordinal, or -1 for all robots.
+     * @return The index of the histogram.
+     */
+    static int series(int phase, int kind) {
+        return phase * SERIES + kind + 1;
+    }
+
+    /**
+     * Records the wall time of every phase of a tick.
+     *
+     * @param nanos How long each phase took.
+     */
+    void recordPhases(long[] nanos) {
+        for (int phase = 0; phase < PHASES; phase++) histograms[series(phase, -1)].record(nanos[phase]);
+    }
+
+    /**
+     * Adds time spent on one kind of robot in a phase of this tick, for endTick to record.
+     *
+     * @param nanos Time per phase and kind, indexed by series; the entries are cleared as they are added.
+     */
+    void addKindNanos(long[] nanos) {
+        for (int k = 0; k < nanos.length; k++) {
+            kindNanos[k] += nanos[k];
+            nanos[k] = 0;
+        }
+    }
+
+    /**
+     * Adds to this tick's test counts.
+     *
+     * @param collisions Number of robot pairs tested for a collision.
+     * @param sensors Number of robots tested against a sensor line.
+     */
+    void addTests(long collisions, long sensors) {
+        collisionTests += collisions;
+        sensorTests += sensors;
+    }
+
+    /**
+     * Records the per-kind times added during the tick, for the kinds that had robots, and
+     * keeps the test counts for summarise.
+     *
+     * @param kindStart Where each kind's robots start in the tick's order, as RobotStore.groupByKind gives.
+     */
+    void endTick(int[] kindStart) {
+        for (int phase = 0; phase < PHASES; phase++) {
+            for (int k = 0; k < SERIES - 1; k++) {
+                int h = series(phase, k);
+                if (kindNanos[h] != 0 && kindStart[k + 1] > kindStart[k]) histograms[h].record(kindNanos[h]);
+                kindNanos[h] = 0;
+            }
+        }
+        lastCollisionTests = collisionTests;
+        lastSensorTests = sensorTests;
+        collisionTests = 0;
+        sensorTests = 0;
+    }
+
+    /**
+     * Writes p50, p99 and max, in nanoseconds, for every phase and kind, then the last tick's test counts.
+     *
+     * @param out Where to write; at least SUMMARY_LENGTH long. Series with no durations get zeros.
+     */
+    void summarise(long[] out) {
+        for (int h = 0; h < histograms.length; h++) {
+            LatencyHistogram hist = histograms[h];
+            out[3 * h] = hist.percentile(0.5);
+            out[3 * h + 1] = hist.percentile(0.99);
+            out[3 * h + 2] = hist.max();
+        }
+        out[COLLISION_TESTS] = lastCollisionTests;
+        out[SENSOR_TESTS] = lastSensorTests;
+    }
+
+    /**
+     * Turns a summary into lines of text: a line per phase with p50, p99 and max in microseconds,
+     * each followed by a line per kind of robot timed in it, then the test counts.
+     *
+     * @param summary A summary written by summarise.
+     * @param lines The list the lines are appended to.
+     */
+    static void report(long[] summary, List<String> lines) {
+        for (int phase = 0; phase < PHASES; phase++) {
+            int all = series(phase, -1);
+            lines.add(reportLine(PHASE_NAMES[phase], summary[3 * all], summary[3 * all + 1], summary[3 * all + 2]));
+            for (int k = 0; k < SERIES - 1; k++) {
+                int h = series(phase, k);
+                if (summary[3 * h + 2] > 0) {
+                    lines.add(reportLine("  " + RobotKind.of((byte) k).strType(),
+                                         summary[3 * h], summary[3 * h + 1], summary[3 * h + 2]));
+                }
+            }
+        }
+        lines.add("collision tests " + summary[COLLISION_TESTS] + ", sensor tests " + summary[SENSOR_TESTS]);
+    }
+
+    /**
+     * Formats the times of one phase as a line of a report.
+     *
+     * @param name The name of the phase.
+     * @param p50 The median time in nanoseconds.
+     * @param p99 The 99th percentile in nanoseconds.
+     * @param max The longest time in nanoseconds.
+     * @return The line, with the times in microseconds.
+     */
+    static String reportLine(String name, long p50, long p99, long max) {
+        return String.format("%-22s p50 %9.1f  p99 %9.1f  max %9.1f us", name, p50 / 1e3, p99 / 1e3, max / 1e3);
+    }
+}
@@ -0,0 +1,62 @@
+package application;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free hand-over of values from one writer thread to one reader thread.
+ * There are three slots: the writer fills its back slot and swaps it with the middle one,
+ * and the reader swaps its front slot with the middle one whenever something new was published.
+ * Neither side ever waits, and a slot is never written while the reader holds it.
+ *
+ * @param <T> The type of value handed over, normally reused between publishes.
+ */
+final class TripleBuffer<T> {
+    private static final int DIRTY = 4;          // set in middle while it holds an unread value
+
+    private final Object[] slots;
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;                        // only touched by the writer
+    private int front = 2;                       // only touched by the reader
+
+    /**
+     * Constructs a triple buffer over three values.
+     *
+     * @param a The first value, initially the writer's.
+     * @param b The second value, initially in the middle.
+     * @param c The third value, initially the reader's.
+     */
+    TripleBuffer(T a, T b, T c) {
+        slots = new Object[] {a, b, c};
+    }
+
+    /**
+     * Gets the value the writer may fill. Writer thread only.
+     *
+     * @return The back value.
+     */
+    @SuppressWarnings("unchecked")
+    T back() {
+        return (T) slots[back];
+    }
+
+    /**
+     * Publishes the back value and gives the writer a free one. Writer thread only.
+     */
+    void publish() {
+        back = middle.getAndSet(back | DIRTY) & ~DIRTY;
+    }
+
+    /**
+     * Gets the most recently published value. Reader thread only.
+     * The value stays valid, and unchanged, until the next call.
+     *
+     * @return The latest value.
+     */
+    @SuppressWarnings("unchecked")
+    T latest() {
+        if ((middle.get() & DIRTY) != 0) {
+            front = middle.getAndSet(front) & ~DIRTY;
+        }
+        return (T) slots[front];
+    }
+}
@@ -0,0 +1,138 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid of square cells covering the arena.
+ * The robots are sorted by the cell holding their centre into packed arrays of position,
+ * radius and slot, so the cells of one grid row are a single run that the collision kernel
+ * can test without gathering from the store. Robots outside the arena are kept in the nearest edge cell.
+ */
+final class UniformGrid implements SpatialIndex {
+    private double cellSize = 1;
+    private int cols, rows;
+    private int[] cellStart = new int[1];   // robots of cell c are entries cellStart[c] until cellStart[c + 1]
+    private int[] cursor = new int[0];      // fill position of each cell while building
+    private int[] cellOf = new int[0];      // cell of each robot while building
+
+    // entries, grouped by cell
+    private double[] px = new double[0], py = new double[0], pr = new double[0];
+    private int[] slot = new int[0];
+    private int maxOccupancy, occupiedCells;
+
+    /**
+     * Works out how many cells a grid of the given size would need.
+     *
+     * @param xSize The width of the arena.
+     * @param ySize The height of the arena.
+     * @param cellSize The cell size.
+     * @return The number of cells.
+     */
+    static long cellsFor(double xSize, double ySize, double cellSize) {
+        long c = Math.max(1, (long) Math.ceil(xSize / cellSize));
+        long r = Math.max(1, (long) Math.ceil(ySize / cellSize));
+        return c * r;
+    }
+
+    @Override
+    public void build(RobotStore robots, double xSize, double ySize, double cellSize) {
+        this.cellSize = cellSize;
+        cols = (int) Math.max(1, Math.ceil(xSize / cellSize));
+        rows = (int) Math.max(1, Math.ceil(ySize / cellSize));
+
+        int cells = cols * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+            cursor = new int[cells];
+        }
+        int n = robots.size;
+        if (cellOf.length < n) {
+            int cap = robots.capacity();
+            cellOf = new int[cap];
+            px = new double[cap];
+            py = new double[cap];
+            pr = new double[cap];
+            slot = new int[cap];
+        }
+
+        // 1. count the robots in each cell
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+        for (int i = 0; i < n; i++) {
+            int cell = cellIndex(robots.x[i], robots.y[i]);
+            cellOf[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        maxOccupancy = 0;
+        occupiedCells = 0;
+        for (int c = 1; c <= cells; c++) {
+            int count = cellStart[c];
+            if (count > 0) occupiedCells++;
+            if (count > maxOccupancy) maxOccupancy = count;
+            cellStart[c] += cellStart[c - 1];
+        }
+
+        // 2. copy each robot into its cell's run, in slot order
+        System.arraycopy(cellStart, 0, cursor, 0, cells);
+        for (int i = 0; i < n; i++) {
+            int e = cursor[cellOf[i]]++;
+            px[e] = robots.x[i];
+            py[e] = robots.y[i];
+            pr[e] = robots.rad[i];
+            slot[e] = i;
+        }
+    }
+
+    @Override
+    public void query(double x, double y, double reach, IndexList out) {
+        int c0 = column(x - reach), c1 = column(x + reach);
+        int r0 = row(y - reach),    r1 = row(y + reach);
+        for (int row = r0; row <= r1; row++) {
+            int to = cellStart[row * cols + c1 + 1];
+            for (int e = cellStart[row * cols + c0]; e < to; e++) {
+                out.add(slot[e]);
+            }
+        }
+    }
+
+    @Override
+    public void overlapping(double x, double y, double r, double reach, IndexList out) {
+        int c0 = column(x - reach), c1 = column(x + reach);
+        int r0 = row(y - reach),    r1 = row(y + reach);
+        for (int row = r0; row <= r1; row++) {
+            CollisionKernel.overlapping(px, py, pr, slot, cellStart[row * cols + c0], cellStart[row * cols + c1 + 1],
+                                        x, y, r, out);
+        }
+    }
+
+    /**
+     * Gets the number of robots in the most crowded cell at the last build.
+     *
+     * @return The largest cell occupancy.
+     */
+    int maxOccupancy() {
+        return maxOccupancy;
+    }
+
+    /**
+     * Gets the number of cells that held at least one robot at the last build.
+     *
+     * @return The number of occupied cells.
+     */
+    int occupiedCells() {
+        return occupiedCells;
+    }
+
+    private int cellIndex(double x, double y) {
+        return row(y) * cols + column(x);
+    }
+
+    private int column(double x) {
+        int c = (int) Math.floor(x / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int row(double y) {
+        int r = (int) Math.floor(y / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+}
@@ -3,11 +3,10 @@ package application;
 /**
  * A subclass of BasicRobot that is controlled by user input.
  * The robot moves in a specific direction based on user commands and can detect wall collisions.
+ * Its movement is carried out by the arena's MovementSystem.
  */
 public class UserControlledRobot extends BasicRobot {
 
-    private Direction currentDirection;
-
     /**
      * Constructor to initialize a UserControlledRobot with the specified position, radius, angle, and speed.
      * 
@@ -18,8 +17,17 @@ public class UserControlledRobot extends BasicRobot {
      * @param j The initial speed of the robot.
      */
     UserControlledRobot(double ix, double iy, double ir, int i, int j) {
-        super(ix, iy, ir, i, j);
-        this.col = 'y';  // Set the color of the robot
+        super(ix, iy, ir, i, j);  // yellow, from its kind
+    }
+
+    /**
+     * Constructs a view onto a UserControlledRobot already in a store; see Robot(RobotStore, int).
+     * 
+     * @param s The store holding the robot.
+     * @param i The robot's slot.
+     */
+    UserControlledRobot(RobotStore s, int i) {
+        super(s, i);
     }
 
     /**
@@ -32,6 +40,8 @@ public class UserControlledRobot extends BasicRobot {
         RIGHT
     }
 
+    private static final Direction[] DIRECTIONS = Direction.values();  // values() copies the array on every call
+
     /**
      * Updates the robot's direction based on the user's input.
      * The input is expected to be "W", "A", "S", or "D", representing the four cardinal directions.
@@ -41,66 +51,45 @@ public class UserControlledRobot extends BasicRobot {
     public void direction(String input) {
         switch(input.toUpperCase()) {
             case "W":
-                currentDirection = Direction.UP;
-                bAngle = 270; // Face upwards
+                setDirection(Direction.UP, 270); // Face upwards
                 break;
             case "A":
-                currentDirection = Direction.LEFT;
-                bAngle = 180; // Face left
+                setDirection(Direction.LEFT, 180); // Face left
                 break;
             case "S":
-                currentDirection = Direction.DOWN;
-                bAngle = 90; // Face downwards
+                setDirection(Direction.DOWN, 90); // Face downwards
                 break;
             case "D":
-                currentDirection = Direction.RIGHT;
-                bAngle = 0;  // Face right
+                setDirection(Direction.RIGHT, 0);  // Face right
                 break;    
             default:
-                currentDirection = Direction.UP;
-                bAngle = 270;   // Default to facing up
+                setDirection(Direction.UP, 270);   // Default to facing up
         }         
     }
 
     /**
-     * Moves the robot based on its current direction.
-     * The robot checks for collisions with the walls and adjusts its direction if necessary.
+     * Stores the new direction and heading.
      * 
-     * @param xLimit The maximum x-coordinate limit for the arena.
-     * @param yLimit The maximum y-coordinate limit for the arena.
+     * @param d The direction to move in.
+     * @param angle The matching heading in degrees.
      */
-    @Override
-    public void move(double xLimit, double yLimit) {
-        // Move according to currentDirection
-        if (currentDirection == Direction.UP) {
-            y -= bSpeed;
-        } else if (currentDirection == Direction.DOWN) {
-            y += bSpeed;
-        } else if (currentDirection == Direction.LEFT) {
-            x -= bSpeed;
-        } else if (currentDirection == Direction.RIGHT) {
-            x += bSpeed;
-        }
-
-        // Check for wall collisions
-        if(sensorSeesObstacle(xLimit, yLimit)) {
-            System.out.println("Wall collision detected, changing direction.");
-            bAngle += 100 + (Math.random() * 80);  // Change direction randomly
-        }
-
-        // Make sure the robot stays within the bounds of the arena
-        clampPosition(xLimit, yLimit);
+    private void setDirection(Direction d, double angle) {
+        setAngle(angle);
+        store.direction[slot] = (byte) d.ordinal();
     }
 
     /**
-     * Simulates a sensor that detects if the robot is about to collide with an obstacle.
+     * Gets the direction the robot is currently moving in.
      * 
-     * @param xLimit The maximum x-coordinate limit for the arena.
-     * @param yLimit The maximum y-coordinate limit for the arena.
-     * @return True if an obstacle is detected, false otherwise.
+     * @return The current direction, or null if the user has not steered it yet.
      */
-    private boolean sensorSeesObstacle(double xLimit, double yLimit) {
-        return false;  // Placeholder implementation
+    public Direction getDirection() {
+        byte d = store.direction[slot];
+        return d == RobotStore.NO_DIRECTION ? null : DIRECTIONS[d];
     }
-}
 
+    @Override
+    RobotKind kind() {
+        return RobotKind.USER_CONTROLLED;
+    }
+}
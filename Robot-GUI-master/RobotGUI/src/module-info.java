@@ -1,6 +1,10 @@
 module RobotGUI {
 	requires javafx.controls;
 	requires java.desktop;
+	requires jdk.management;
+	requires jdk.jfr;
+	requires jdk.httpserver;
 
+	exports application to java.management;
 	opens application to javafx.graphics, javafx.fxml;
 }
\ No newline at end of file